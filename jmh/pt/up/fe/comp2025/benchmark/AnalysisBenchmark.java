@@ -0,0 +1,52 @@
+package pt.up.fe.comp2025.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.analysis.AnalysisPass;
+import pt.up.fe.comp2025.analysis.passes.TypeChecking;
+import pt.up.fe.comp2025.analysis.passes.UndeclaredVariable;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Symbol table construction and each of the semantic analysis passes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PassState {
+
+        @Param({"UndeclaredVariable", "TypeChecking"})
+        public String pass;
+
+        public Supplier<AnalysisPass> factory;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            factory = switch (pass) {
+                case "UndeclaredVariable" -> UndeclaredVariable::new;
+                case "TypeChecking" -> TypeChecking::new;
+                default -> throw new RuntimeException("Unknown analysis pass '" + pass + "'");
+            };
+        }
+    }
+
+    @Benchmark
+    public SymbolTable symbolTable(CompilerState state) {
+        return new JmmSymbolTableBuilder().build(state.parserResult.getRootNode());
+    }
+
+    @Benchmark
+    public List<Report> analysisPass(CompilerState state, PassState passState) {
+        return passState.factory.get().analyze(state.semanticsResult.getRootNode(), state.semanticsResult.getSymbolTable());
+    }
+}
@@ -0,0 +1,22 @@
+package pt.up.fe.comp2025.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pt.up.fe.comp2025.backend.JasminGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of Jasmin code from OLLIR, including the peephole stage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackendBenchmark {
+
+    @Benchmark
+    public String jasminGeneration(CompilerState state) {
+        return new JasminGenerator(state.ollirResult).build();
+    }
+}
@@ -0,0 +1,60 @@
+package pt.up.fe.comp2025.benchmark;
+
+import pt.up.fe.comp2025.synthetic.ProgramGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Loads the programs used as benchmark inputs.
+ */
+public class BenchmarkInputs {
+
+    /**
+     * Folder with the .jmm resources of the tests, relative to the project directory.
+     */
+    private static final String TEST_FOLDER = "test";
+
+    /**
+     * Inputs with this prefix are generated programs, followed by their scale (e.g. synthetic:8).
+     */
+    private static final String SYNTHETIC_PREFIX = "synthetic:";
+
+    /**
+     * Fixed seed, so that every run measures the same synthetic programs.
+     */
+    private static final long SYNTHETIC_SEED = 2025;
+
+    /**
+     * @param input a path relative to the test folder (e.g. pt/up/fe/comp/cp2/ollir/basic/BasicClass.jmm) or to the
+     *              working directory, or 'synthetic:&lt;scale&gt;' for a generated program
+     * @return the code of the program
+     */
+    public static String load(String input) {
+        if (input.startsWith(SYNTHETIC_PREFIX)) {
+            int scale = Integer.parseInt(input.substring(SYNTHETIC_PREFIX.length()));
+            return new ProgramGenerator(SYNTHETIC_SEED, ProgramGenerator.Options.scaled(scale)).generate("Synthetic");
+        }
+
+        var file = new File(TEST_FOLDER, input);
+        if (!file.isFile()) {
+            file = new File(input);
+        }
+
+        if (!file.isFile()) {
+            throw new RuntimeException("Could not find benchmark input '" + input + "'");
+        }
+
+        return SpecsIo.read(file);
+    }
+
+    /**
+     * The compiler stages print debug information to the standard output, which would otherwise dominate the
+     * measurements.
+     */
+    public static void silenceOutput() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2025.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+
+import java.util.Map;
+
+/**
+ * The result of every compiler stage for one input, so that each benchmark only measures its own stage.
+ * <p>
+ * Other inputs can be given with '-p input=&lt;path&gt;' or '-p input=synthetic:&lt;scale&gt;'.
+ */
+@State(Scope.Benchmark)
+public class CompilerState {
+
+    @Param({
+            "pt/up/fe/comp/cp2/ollir/basic/BasicClassWithFields.jmm",
+            "pt/up/fe/comp/cp2/optimizations/const_prop_fold/PropWithLoop.jmm",
+            "pt/up/fe/comp/cp3/jasmin/arrays/ArrayAsArg.jmm",
+            "pt/up/fe/comp/cp3/jasmin/control_flow/IfWhileNested.jmm",
+            "pt/up/fe/comp/cp3/jasmin/control_flow/SwitchStat.jmm",
+            "synthetic:1",
+            "synthetic:8",
+            "synthetic:64"
+    })
+    public String input;
+
+    public String code;
+    public Map<String, String> config;
+    public JmmParserResult parserResult;
+    public JmmSemanticsResult semanticsResult;
+    public OllirResult ollirResult;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkInputs.silenceOutput();
+
+        code = BenchmarkInputs.load(input);
+        config = CompilerConfig.getDefault();
+
+        parserResult = parse();
+
+        var analysis = new JmmAnalysisImpl();
+        semanticsResult = analysis.semanticAnalysis(analysis.buildSymbolTable(parserResult));
+
+        ollirResult = new JmmOptimizationImpl().toOllir(semanticsResult);
+    }
+
+    /**
+     * @return a new AST for the input, for the stages that modify it
+     */
+    public JmmParserResult parse() {
+        var result = new JmmParserImpl().parse(code, config);
+        if (result.getRootNode() == null) {
+            throw new RuntimeException("Could not parse benchmark input '" + input + "': " + result.getReports());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package pt.up.fe.comp2025.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.optimization.AstOptimizerVisitor;
+import pt.up.fe.comp2025.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2025.optimization.RegisterAllocator;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AST optimizations, OLLIR generation and register allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimizationBenchmark {
+
+    /**
+     * The AST optimizer changes the tree in place, so each invocation gets a freshly parsed one. The setup is not
+     * measured, but with very small inputs its overhead still shows up in the results.
+     */
+    @State(Scope.Thread)
+    public static class FreshAst {
+
+        public JmmNode root;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerState state) {
+            root = state.parse().getRootNode();
+        }
+    }
+
+    @Benchmark
+    public String ollirGeneration(CompilerState state) {
+        var visitor = new OllirGeneratorVisitor(state.semanticsResult.getSymbolTable());
+        return visitor.visit(state.semanticsResult.getRootNode());
+    }
+
+    @Benchmark
+    public String ollirGenerationParallel(CompilerState state) {
+        var threads = Runtime.getRuntime().availableProcessors();
+        var config = Map.of(ConfigOptions.getThreads(), String.valueOf(threads));
+        var visitor = new OllirGeneratorVisitor(state.semanticsResult.getSymbolTable(), config);
+        return visitor.visit(state.semanticsResult.getRootNode());
+    }
+
+    @Benchmark
+    public JmmNode astOptimizer(FreshAst ast) {
+        var optimizer = new AstOptimizerVisitor();
+
+        do {
+            optimizer.resetOptimized();
+            optimizer.visit(ast.root);
+        } while (optimizer.hasOptimized());
+
+        return ast.root;
+    }
+
+    @Benchmark
+    public void registerAllocation(CompilerState state, Blackhole blackhole) {
+        for (var method : state.ollirResult.getOllirClass().getMethods()) {
+            blackhole.consume(RegisterAllocator.allocate(method, 0));
+        }
+    }
+
+    @Benchmark
+    public void registerAllocationLinearScan(CompilerState state, Blackhole blackhole) {
+        for (var method : state.ollirResult.getOllirClass().getMethods()) {
+            blackhole.consume(RegisterAllocator.allocate(method, 0, 0));
+        }
+    }
+}
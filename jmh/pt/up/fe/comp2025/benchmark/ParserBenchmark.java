@@ -0,0 +1,65 @@
+package pt.up.fe.comp2025.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.parser.ParserPool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing, parsing and conversion of the parse tree into the AST.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    /**
+     * Discards the DFAs shared by all parsers before each invocation, as in the first parse of a process.
+     */
+    @State(Scope.Thread)
+    public static class ColdDfa {
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            ParserPool.clearDfa();
+        }
+    }
+
+    /**
+     * Two-stage parsing, SLL prediction with a fallback to LL.
+     */
+    @Benchmark
+    public JmmParserResult parse(CompilerState state) {
+        return new JmmParserImpl().parse(state.code, state.config);
+    }
+
+    /**
+     * Full LL prediction only, the baseline for the two-stage parse.
+     */
+    @Benchmark
+    public JmmParserResult parseLL(CompilerState state) {
+        var parser = new JmmParserImpl();
+        return parser.parse(state.code, parser.getDefaultRule(), state.config, false);
+    }
+
+    /**
+     * Two-stage parsing without the DFAs built by previous parses.
+     */
+    @Benchmark
+    public JmmParserResult parseCold(CompilerState state, ColdDfa coldDfa) {
+        return new JmmParserImpl().parse(state.code, state.config);
+    }
+
+    /**
+     * Two-stage parsing from several threads at once, all sharing the same DFAs.
+     */
+    @Benchmark
+    @Threads(4)
+    public JmmParserResult parseConcurrent(CompilerState state) {
+        return new JmmParserImpl().parse(state.code, state.config);
+    }
+}
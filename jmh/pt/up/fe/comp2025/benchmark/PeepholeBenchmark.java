@@ -0,0 +1,114 @@
+package pt.up.fe.comp2025.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.JasminGenerator;
+import pt.up.fe.comp2025.backend.JasminInstruction;
+import pt.up.fe.comp2025.backend.JasminPeephole;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+import pt.up.fe.comp2025.optimization.GeneratedOllirResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each peephole rule on its own, and the complete rule table, applied to the unoptimized method bodies of the input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PeepholeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MethodBodies {
+
+        public List<MethodBody> bodies;
+        public Set<String> temporaries;
+
+        @Setup(Level.Trial)
+        public void setup(CompilerState state) {
+            // Without rules the generator emits the method bodies as they are before the peephole stage
+            var jasminCode = new JasminGenerator(state.ollirResult, new JasminPeephole(List.of())).build();
+            bodies = getMethodBodies(jasminCode, state.ollirResult.getOllirClass().getMethods());
+            temporaries = GeneratedOllirResult.getTemporaries(state.ollirResult);
+        }
+
+        /**
+         * Methods generated only by the backend, such as the static initializer, have no OLLIR method and are skipped.
+         */
+        private static List<MethodBody> getMethodBodies(String jasminCode, List<Method> methods) {
+            var bodies = new ArrayList<MethodBody>();
+            List<JasminInstruction> current = null;
+            Method method = null;
+
+            for (var line : jasminCode.split("\n")) {
+                var trimmed = line.trim();
+
+                if (trimmed.startsWith(".method")) {
+                    var name = trimmed.substring(trimmed.lastIndexOf(' ') + 1, trimmed.indexOf('('));
+                    method = methods.stream()
+                            .filter(candidate -> !candidate.isConstructMethod())
+                            .filter(candidate -> candidate.getMethodName().equals(name))
+                            .findFirst()
+                            .orElse(null);
+                    current = new ArrayList<>();
+                } else if (trimmed.startsWith(".end method")) {
+                    if (method != null) {
+                        bodies.add(new MethodBody(current, method));
+                    }
+                    current = null;
+                } else if (current != null && !trimmed.isEmpty() && !trimmed.startsWith(".")) {
+                    current.add(JasminInstruction.parse(trimmed));
+                }
+            }
+
+            return bodies;
+        }
+    }
+
+    /**
+     * The instructions of a method before the peephole stage, and the OLLIR method they were generated from.
+     */
+    public record MethodBody(List<JasminInstruction> code, Method method) {
+    }
+
+    @State(Scope.Benchmark)
+    public static class RuleState {
+
+        @Param({"ConstantSelection", "LoadStoreElimination", "IincSelection", "CompareFusion", "RedundantGoto",
+                "JumpThreading", "LoopRotation", "UnreachableCodeElimination", "UnusedLabelElimination"})
+        public String rule;
+
+        public JasminPeephole peephole;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            PeepholeRule selected = JasminPeephole.buildRules().stream()
+                    .filter(peepholeRule -> peepholeRule.getClass().getSimpleName().equals(rule))
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Unknown peephole rule '" + rule + "'"));
+
+            peephole = new JasminPeephole(List.of(selected));
+        }
+    }
+
+    @Benchmark
+    public void rule(MethodBodies methods, RuleState ruleState, Blackhole blackhole) {
+        for (var body : methods.bodies) {
+            blackhole.consume(ruleState.peephole.optimize(body.code(), body.method(), methods.temporaries));
+        }
+    }
+
+    @Benchmark
+    public void allRules(MethodBodies methods, Blackhole blackhole) {
+        var peephole = new JasminPeephole();
+        for (var body : methods.bodies) {
+            blackhole.consume(peephole.optimize(body.code(), body.method(), methods.temporaries));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package pt.up.fe.comp2025;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,6 +11,26 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String METRICS = "metrics";
+    private static final String THREADS = "threads";
+    private static final String REGISTER_ALLOCATOR = "registerAllocator";
+    private static final String UNROLL = "unroll";
+    private static final String PROFILE = "profile";
+
+    /**
+     * Instructions from which methods are allocated with linear scan when the allocator is 'auto'.
+     */
+    public static final int DEFAULT_LINEAR_SCAN_THRESHOLD = 1000;
+
+    /**
+     * Number of copies of the body of counted loops when they are unrolled with '-o'.
+     */
+    public static final int DEFAULT_UNROLL_FACTOR = 4;
+
+    /**
+     * Formats accepted by the metrics option.
+     */
+    private static final List<String> METRICS_FORMATS = List.of("json");
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +39,11 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("m", CompilerConfig.METRICS);
+        shortToLong.put("j", CompilerConfig.THREADS);
+        shortToLong.put("ra", CompilerConfig.REGISTER_ALLOCATOR);
+        shortToLong.put("u", CompilerConfig.UNROLL);
+        shortToLong.put("p", CompilerConfig.PROFILE);
     }
 
 
@@ -41,6 +67,153 @@ public class CompilerConfig {
     }
 
 
+    /**
+     * @param config
+     * @return the format in which compilation metrics should be printed, if they were requested
+     */
+    public static Optional<String> getMetrics(Map<String, String> config) {
+        var format = config.get(METRICS);
+        if (format == null) {
+            return Optional.empty();
+        }
+
+        if (!METRICS_FORMATS.contains(format)) {
+            throw new RuntimeException("Option '-m' expects one of " + METRICS_FORMATS + ", got '" + format + "'");
+        }
+
+        return Optional.of(format);
+    }
+
+
+    /**
+     * Number of threads used to compile the methods of a class. Given without a value ('-j'), uses one thread per
+     * available processor.
+     *
+     * @param config
+     * @return the number of threads, 1 by default
+     */
+    public static int getThreads(Map<String, String> config) {
+        var threads = config.getOrDefault(THREADS, "1");
+        if (threads.equals("true")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        int value = Integer.parseInt(threads);
+        if (value < 1) {
+            throw new RuntimeException("Option '-j' expects a positive number of threads, got '" + threads + "'");
+        }
+        return value;
+    }
+
+
+    /**
+     * Register allocator used with '-r': 'graph' (the default) colors the interference graph, 'linear' uses linear
+     * scan, 'auto' uses linear scan for methods with at least {@link #DEFAULT_LINEAR_SCAN_THRESHOLD} instructions, and
+     * a number uses linear scan for methods with at least that many instructions.
+     *
+     * @param config
+     * @return the number of instructions from which a method is allocated with linear scan
+     */
+    public static int getLinearScanThreshold(Map<String, String> config) {
+        var allocator = config.getOrDefault(REGISTER_ALLOCATOR, "graph");
+        switch (allocator) {
+            case "graph":
+                return Integer.MAX_VALUE;
+            case "linear":
+                return 0;
+            case "auto":
+                return DEFAULT_LINEAR_SCAN_THRESHOLD;
+        }
+
+        try {
+            int threshold = Integer.parseInt(allocator);
+            if (threshold >= 0) {
+                return threshold;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+
+        throw new RuntimeException("Option '-ra' expects 'graph', 'linear', 'auto' or a number of instructions, got '"
+                + allocator + "'");
+    }
+
+
+    /**
+     * Number of copies of the body in counted loops unrolled by '-o', where 1 disables unrolling.
+     *
+     * @param config
+     * @return the unroll factor, {@link #DEFAULT_UNROLL_FACTOR} by default
+     */
+    public static int getUnrollFactor(Map<String, String> config) {
+        var factor = config.getOrDefault(UNROLL, String.valueOf(DEFAULT_UNROLL_FACTOR));
+
+        try {
+            int value = Integer.parseInt(factor);
+            if (value >= 1) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+
+        throw new RuntimeException("Option '-u' expects a positive unroll factor, got '" + factor + "'");
+    }
+
+
+    /**
+     * Profile-guided optimization with '-p': 'instrument' generates a class that counts how many times each block of
+     * its methods runs and writes the counts to {@code <class name>.profile} when main returns,
+     * {@code instrument=<file>} writes them to the given file instead, and {@code use=<file>} optimizes with the counts
+     * of a profile.
+     *
+     * @param config
+     * @return true if the generated code should be instrumented
+     */
+    public static boolean getProfileInstrument(Map<String, String> config) {
+        var profile = config.get(PROFILE);
+        if (profile == null) {
+            return false;
+        }
+
+        if (profile.equals("instrument") || profile.startsWith("instrument=")) {
+            return true;
+        }
+        if (profile.startsWith("use=") && profile.length() > "use=".length()) {
+            return false;
+        }
+
+        throw new RuntimeException("Option '-p' expects 'instrument', 'instrument=<file>' or 'use=<file>', got '"
+                + profile + "'");
+    }
+
+
+    /**
+     * @param config
+     * @return the file given to {@code -p=instrument=<file>}, if any
+     */
+    public static Optional<String> getProfileOutput(Map<String, String> config) {
+        if (!getProfileInstrument(config) || !config.get(PROFILE).contains("=")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(config.get(PROFILE).substring("instrument=".length()));
+    }
+
+
+    /**
+     * @param config
+     * @return the profile given to {@code -p=use=<file>}, if any
+     */
+    public static Optional<File> getProfileInput(Map<String, String> config) {
+        if (!config.containsKey(PROFILE) || getProfileInstrument(config)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(config.get(PROFILE).substring("use=".length())));
+    }
+
+
     public static Map<String, String> getDefault() {
 
         var config = new HashMap<String, String>();
@@ -72,18 +245,16 @@ public class CompilerConfig {
                 throw new RuntimeException("Arguments should start with '-'");
             }
 
-            String shortOption = arg.substring(1, 2);
+            // Options can have more than one letter (e.g. '-ra'), the name goes until the equal sign
+            int equalSign = arg.indexOf('=');
+            String shortOption = equalSign == -1 ? arg.substring(1) : arg.substring(1, equalSign);
             if (!isShortOpt(shortOption)) {
                 throw new RuntimeException("Unrecognized option '-" + shortOption + "'");
             }
 
             String value = "true";
-            if (arg.length() > 2) {
-                String equalSign = arg.substring(2, 3);
-                if (equalSign.equals("=")) {
-
-                    value = arg.substring(3);
-                }
+            if (equalSign != -1) {
+                value = arg.substring(equalSign + 1);
             }
 
             config.put(getLongOpt(shortOption), value);
@@ -106,6 +277,15 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getMetrics(config);
+        getThreads(config);
+        getLinearScanThreshold(config);
+        getUnrollFactor(config);
+        getProfileInput(config).ifPresent(profile -> {
+            if (!profile.isFile()) {
+                throw new RuntimeException("Could not find profile '" + profile + "'");
+            }
+        });
 
         return config;
     }
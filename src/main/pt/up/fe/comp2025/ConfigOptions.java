@@ -11,6 +11,11 @@ public class ConfigOptions {
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
     private static final String EXTRA = "extra";
+    private static final String METRICS = "metrics";
+    private static final String THREADS = "threads";
+    private static final String REGISTER_ALLOCATOR = "registerAllocator";
+    private static final String UNROLL = "unroll";
+    private static final String PROFILE = "profile";
 
     // These methods should be on CompilerConfig, but to avoid rewriting a file
     // that is in the src folder, this new class was added
@@ -31,6 +36,26 @@ public class ConfigOptions {
         return EXTRA;
     }
 
+    public static String getMetrics() {
+        return METRICS;
+    }
+
+    public static String getThreads() {
+        return THREADS;
+    }
+
+    public static String getRegisterAllocator() {
+        return REGISTER_ALLOCATOR;
+    }
+
+    public static String getUnroll() {
+        return UNROLL;
+    }
+
+    public static String getProfile() {
+        return PROFILE;
+    }
+
     public static Optional<File> getInputFile(Map<String, String> config) {
         var inputFile = config.get(INPUT_FILE);
 
@@ -7,9 +7,10 @@ import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
 import pt.up.fe.comp2025.backend.JasminBackendImpl;
+import pt.up.fe.comp2025.backend.MeasuredJasminResult;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
 import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2025.parser.JmmParserImpl;
-import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
 import java.util.Map;
@@ -25,11 +26,16 @@ public class Launcher {
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
+        // Collects the time and memory spent by each stage, when requested
+        var metricsFormat = CompilerConfig.getMetrics(config);
+        if (metricsFormat.isPresent()) {
+            CompilerMetrics.start();
+        }
+
+        // Parsing stage, the input file is mapped into memory instead of being read into a String
         JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
+        JmmParserResult parserResult = parser.parse(inputFile, config);
         TestUtils.noErrors(parserResult.getReports());
 
         // Print AST
@@ -58,6 +64,12 @@ public class Launcher {
 
         // Print Jasmin code
         //System.out.println(jasminResult.getJasminCode());
+
+        // Print metrics, only JSON is supported
+        if (metricsFormat.isPresent() && jasminResult instanceof MeasuredJasminResult measured) {
+            CompilerMetrics.finish();
+            System.out.println(measured.getMetrics().toJson());
+        }
     }
 
 }
@@ -3,6 +3,7 @@ package pt.up.fe.comp2025.analysis;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.ast.CompactAst;
 
 import java.util.List;
 
@@ -20,4 +21,16 @@ public interface AnalysisPass {
      */
     List<Report> analyze(JmmNode root, SymbolTable table);
 
+    /**
+     * Analyses the compact form of the AST. Passes that can work on it override this method, by default the pass
+     * visits the tree the compact AST was converted from.
+     *
+     * @param ast   the AST, converted once for all passes
+     * @param table the symbol table
+     * @return a list of reports with the results of the analysis
+     */
+    default List<Report> analyze(CompactAst ast, SymbolTable table) {
+        return analyze(ast.getRootNode(), table);
+    }
+
 }
\ No newline at end of file
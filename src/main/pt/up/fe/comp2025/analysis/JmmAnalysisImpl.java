@@ -10,7 +10,9 @@ import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.passes.*;
+import pt.up.fe.comp2025.ast.CompactAst;
 import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
 import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
@@ -28,10 +30,10 @@ public class JmmAnalysisImpl implements JmmAnalysis {
      * @param table
      * @return
      */
-    private List<AnalysisVisitor> buildPasses(SymbolTable table) {
+    private List<AnalysisPass> buildPasses(SymbolTable table) {
         return List.of(
                 new UndeclaredVariable(),
-                new TypeCheckingVisitor()
+                new TypeChecking()
         );
 
     }
@@ -41,7 +43,11 @@ public class JmmAnalysisImpl implements JmmAnalysis {
         JmmNode rootNode = parserResult.getRootNode();
 
         var symbolTableBuilder = new JmmSymbolTableBuilder();
-        SymbolTable table = symbolTableBuilder.build(rootNode);
+        SymbolTable table;
+        try (var scope = CompilerMetrics.measure("analysis/symbolTable")) {
+            table = symbolTableBuilder.build(rootNode);
+            scope.count("methods", table.getMethods().size());
+        }
 
         List<Report> reports = symbolTableBuilder.getReports();
 
@@ -57,13 +63,24 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         var rootNode = semanticsResult.getRootNode();
 
+        // Passes that work on the compact AST share a single conversion
+        CompactAst compactAst;
+        try (var scope = CompilerMetrics.measure("analysis/compactAst")) {
+            compactAst = CompactAst.from(rootNode);
+            scope.count("nodes", compactAst.size());
+        }
+
         var reports = new ArrayList<Report>();
 
         // This is a simple implementation that assumes all passes are implemented as visitors, each one making a full visit of the AST.
         // There are other implementations that reduce the number of full AST visits, this is not required for the work, but a nice challenge if you want to try.
         for (var analysisVisitor : analysisVisitors) {
             try {
-                var passReports = analysisVisitor.analyze(rootNode, table);
+                List<Report> passReports;
+                try (var scope = CompilerMetrics.measure("analysis/" + analysisVisitor.getClass().getSimpleName())) {
+                    passReports = analysisVisitor.analyze(compactAst, table);
+                    scope.count("reports", passReports.size());
+                }
 
                 var hasSymbolTableErrors = passReports.stream()
                         .anyMatch(report -> report.getType() == ReportType.ERROR);
@@ -0,0 +1,371 @@
+package pt.up.fe.comp2025.analysis.passes;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.AnalysisPass;
+import pt.up.fe.comp2025.ast.CompactAst;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the types of operands, conditions, assignments, returns, array accesses and arguments of calls to methods of
+ * the class, that 'this' is not used in static methods, and that integer literals fit an int.
+ * <p>
+ * Works on the compact AST: the types of the names visible in a method are looked up once per method, by symbol, and
+ * the type of each expression is computed by {@link TypeUtils#getExprType(Object, TypeUtils.Expressions, SymbolTable)},
+ * with the same rules as on the AST.
+ */
+public class TypeChecking implements AnalysisPass {
+
+    private CompactAst ast;
+    private SymbolTable table;
+    private List<Report> reports;
+
+    private String currentMethod;
+    private boolean currentStatic;
+
+    /**
+     * Types of the names visible in the current method, by symbol.
+     */
+    private Map<Integer, Type> names;
+
+    private final TypeUtils.Expressions<Integer> expressions = new TypeUtils.Expressions<>() {
+        @Override
+        public Kind getKind(Integer expr) {
+            return ast.getKind(expr);
+        }
+
+        @Override
+        public String getName(Integer expr) {
+            return ast.getSymbols().getName(ast.getSymbol(expr));
+        }
+
+        @Override
+        public Integer getChild(Integer expr, int index) {
+            return ast.getChild(expr, index);
+        }
+
+        @Override
+        public Type getDeclaredType(Integer id) {
+            return names.get(ast.getSymbol(id));
+        }
+    };
+
+    @Override
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        return analyze(CompactAst.from(root), table);
+    }
+
+    @Override
+    public List<Report> analyze(CompactAst ast, SymbolTable table) {
+        this.ast = ast;
+        this.table = table;
+        this.reports = new ArrayList<>();
+
+        for (int node = 0; node < ast.size(); node++) {
+            switch (ast.getKind(node)) {
+                case METHOD_DECL -> enterMethod(node);
+                case INT -> checkInt(node);
+                case THIS -> checkThis(node);
+                case LENGTH -> checkLength(node);
+                case ASSIGN_STMT -> checkAssign(node);
+                case ADD_SUB, MUL_DIV -> checkArithmetic(node);
+                case COMPARE -> checkCompare(node);
+                case AND, OR -> checkLogical(node);
+                case NOT -> checkNot(node);
+                case ARRAY_ACCESS -> checkArrayAccess(node);
+                case IF_STMT -> checkCondition(node, "If");
+                case WHILE_STMT -> checkCondition(node, "While");
+                case RETURN_STMT -> checkReturn(node);
+                case METHOD_CALL -> checkMethodCall(node);
+                case ARRAY_LITERAL -> checkArrayLiteral(node);
+                default -> {
+                }
+            }
+        }
+
+        return reports;
+    }
+
+    private void enterMethod(int method) {
+        currentMethod = ast.getSymbols().getName(ast.getSymbol(method));
+        currentStatic = ast.hasFlag(method, CompactAst.FLAG_STATIC);
+
+        // Imports hide locals, which hide parameters, which hide fields
+        names = new HashMap<>();
+        addNames(table.getFields().stream().map(field -> Map.entry(field.getName(), field.getType())).toList());
+        addNames(table.getParameters(currentMethod).stream()
+                .map(param -> Map.entry(param.getName(), param.getType())).toList());
+        addNames(table.getLocalVariables(currentMethod).stream()
+                .map(local -> Map.entry(local.getName(), local.getType())).toList());
+        for (var imp : table.getImports()) {
+            var name = imp.substring(imp.lastIndexOf('.') + 1);
+            addNames(List.of(Map.entry(name, new Type(name, false))));
+        }
+    }
+
+    /**
+     * Names that do not appear in the code have no symbol, and no identifier can use them.
+     */
+    private void addNames(List<Map.Entry<String, Type>> declared) {
+        for (var entry : declared) {
+            int symbol = ast.getSymbols().find(entry.getKey());
+            if (symbol != CompactAst.NONE) {
+                names.put(symbol, entry.getValue());
+            }
+        }
+    }
+
+    private Type getType(int expr) {
+        return TypeUtils.getExprType(expr, expressions, table);
+    }
+
+    private void addError(int node, String message) {
+        reports.add(Report.newError(Stage.SEMANTIC, ast.getLine(node), ast.getColumn(node), message, null));
+    }
+
+    private void checkInt(int node) {
+        if (ast.hasFlag(node, CompactAst.FLAG_OUT_OF_RANGE)) {
+            addError(node, "Integer literal " + ast.getLiteral(node) + " is out of range for type 'int'");
+        }
+    }
+
+    private void checkThis(int node) {
+        if (currentStatic) {
+            addError(node, "Cannot use 'this' in static context");
+        }
+    }
+
+    private void checkLength(int node) {
+        int expr = ast.getChild(node, 0);
+        var exprType = getType(expr);
+
+        if (ast.is(expr, Kind.THIS)) {
+            addError(node, "Cannot use '.length' on 'this' of type '" + exprType.getName() + "'");
+            return;
+        }
+
+        if (!exprType.isArray()) {
+            addError(node, "Cannot use '.length' on non-array type '" + exprType.getName() + "'");
+            return;
+        }
+
+        var field = ast.getSymbols().getName(ast.getSymbol(node));
+        if (!field.equals("length")) {
+            addError(node, "Expected '.length' but found '." + field + "'");
+        }
+    }
+
+    private void checkAssign(int node) {
+        var targetType = getType(ast.getChild(node, 0));
+        var valueType = getType(ast.getChild(node, 1));
+
+        if (!isTypeCompatible(targetType, valueType)) {
+            addError(node, "Cannot assign value of type '" + valueType.getName() + "' to variable of type '"
+                    + targetType.getName() + "'");
+        }
+    }
+
+    private void checkArithmetic(int node) {
+        var leftType = getType(ast.getChild(node, 0));
+        var rightType = getType(ast.getChild(node, 1));
+
+        if (!isIntType(leftType)) {
+            addError(node, "Left operand of arithmetic operation must be of type 'int', but got '"
+                    + leftType.getName() + "'");
+        }
+        if (!isIntType(rightType)) {
+            addError(node, "Right operand of arithmetic operation must be of type 'int', but got '"
+                    + rightType.getName() + "'");
+        }
+    }
+
+    private void checkCompare(int node) {
+        var leftType = getType(ast.getChild(node, 0));
+        var rightType = getType(ast.getChild(node, 1));
+        var op = ast.getSymbols().getName(ast.getSymbol(node));
+
+        // '==' and '!=' compare any two compatible types, the other comparisons only ints
+        if (op.equals("==") || op.equals("!=")) {
+            if (!isTypeCompatible(leftType, rightType)) {
+                addError(node, "Incompatible types in equality operation: '" + leftType.getName() + "' and '"
+                        + rightType.getName() + "'");
+            }
+            return;
+        }
+
+        if (!isIntType(leftType)) {
+            addError(node, "Left operand of comparison operation must be of type 'int', but got '"
+                    + leftType.getName() + "'");
+        }
+        if (!isIntType(rightType)) {
+            addError(node, "Right operand of comparison operation must be of type 'int', but got '"
+                    + rightType.getName() + "'");
+        }
+    }
+
+    private void checkLogical(int node) {
+        var leftType = getType(ast.getChild(node, 0));
+        var rightType = getType(ast.getChild(node, 1));
+
+        if (!isBooleanType(leftType)) {
+            addError(node, "Left operand of logical operation must be of type 'boolean', but got '"
+                    + leftType.getName() + "'");
+        }
+        if (!isBooleanType(rightType)) {
+            addError(node, "Right operand of logical operation must be of type 'boolean', but got '"
+                    + rightType.getName() + "'");
+        }
+    }
+
+    private void checkNot(int node) {
+        var exprType = getType(ast.getChild(node, 0));
+        if (!isBooleanType(exprType)) {
+            addError(node, "Operand of logical NOT operation must be of type 'boolean', but got '"
+                    + exprType.getName() + "'");
+        }
+    }
+
+    private void checkArrayAccess(int node) {
+        var arrayType = getType(ast.getChild(node, 0));
+        var indexType = getType(ast.getChild(node, 1));
+
+        if (!arrayType.isArray()) {
+            addError(node, "Array access requires an array type, but got '" + arrayType.getName() + "'");
+        }
+        if (!isIntType(indexType)) {
+            addError(node, "Array index must be of type 'int', but got '" + indexType.getName() + "'");
+        }
+    }
+
+    private void checkCondition(int node, String statement) {
+        var conditionType = getType(ast.getChild(node, 0));
+        if (!isBooleanType(conditionType)) {
+            addError(node, statement + " condition must be of type 'boolean', but got '"
+                    + conditionType.getName() + "'");
+        }
+    }
+
+    private void checkReturn(int node) {
+        if (ast.getNumChildren(node) == 0) {
+            return;
+        }
+
+        var methodReturnType = table.getReturnType(currentMethod);
+        var returnExprType = getType(ast.getChild(node, 0));
+        if (!isTypeCompatible(methodReturnType, returnExprType)) {
+            addError(node, "Incompatible return type: expected '" + methodReturnType.getName() + "', but got '"
+                    + returnExprType.getName() + "'");
+        }
+    }
+
+    private void checkMethodCall(int node) {
+        var methodName = ast.getSymbols().getName(ast.getSymbol(node));
+        var children = ast.getChildren(node);
+        var args = children.subList(1, children.size());
+
+        // Only calls to methods of the class are checked, the others are assumed to be declared by imports
+        if (!getType(children.get(0)).getName().equals(table.getClassName())) {
+            return;
+        }
+
+        if (!table.getMethods().contains(methodName)) {
+            if (table.getSuper() == null) {
+                addError(node, "Method '" + methodName + "' not defined in class '" + table.getClassName() + "'");
+            }
+            return;
+        }
+
+        var parameters = table.getParameters(methodName);
+        boolean hasVarargs = !parameters.isEmpty() && parameters.get(parameters.size() - 1).getType().isArray();
+
+        if (!hasVarargs) {
+            if (args.size() != parameters.size()) {
+                addError(node, "Method '" + methodName + "' called with incorrect number of arguments: expected "
+                        + parameters.size() + ", got " + args.size());
+                return;
+            }
+            for (int i = 0; i < args.size(); i++) {
+                if (!isTypeCompatible(parameters.get(i).getType(), getType(args.get(i)))) {
+                    addError(args.get(i), "Incompatible argument type for parameter " + (i + 1));
+                }
+            }
+            return;
+        }
+
+        if (args.size() < parameters.size() - 1) {
+            addError(node, "Method '" + methodName + "' called with too few arguments");
+            return;
+        }
+
+        for (int i = 0; i < parameters.size() - 1; i++) {
+            if (!isTypeCompatible(parameters.get(i).getType(), getType(args.get(i)))) {
+                addError(args.get(i), "Incompatible argument type for parameter " + (i + 1));
+            }
+        }
+
+        var varargType = new Type(parameters.get(parameters.size() - 1).getType().getName(), false);
+        for (int i = parameters.size() - 1; i < args.size(); i++) {
+            if (!isTypeCompatible(varargType, getType(args.get(i)))) {
+                addError(args.get(i), "Incompatible argument type for varargs parameter");
+            }
+        }
+    }
+
+    private void checkArrayLiteral(int node) {
+        if (ast.getNumChildren(node) == 0) {
+            return;
+        }
+
+        var elements = ast.getChildren(ast.getChild(node, 0));
+        if (elements.isEmpty()) {
+            return;
+        }
+
+        var firstElementType = getType(elements.get(0));
+        for (int i = 1; i < elements.size(); i++) {
+            var elementType = getType(elements.get(i));
+            if (!isTypeCompatible(firstElementType, elementType)) {
+                addError(elements.get(i), "Incompatible type in array initializer: expected '"
+                        + firstElementType.getName() + "', but got '" + elementType.getName() + "'");
+            }
+        }
+    }
+
+    private static boolean isIntType(Type type) {
+        return "int".equals(type.getName()) && !type.isArray();
+    }
+
+    private static boolean isBooleanType(Type type) {
+        return "boolean".equals(type.getName()) && !type.isArray();
+    }
+
+    /**
+     * Values can be assigned to the same type, imported classes to each other, and the class to its superclass.
+     */
+    private boolean isTypeCompatible(Type targetType, Type valueType) {
+        if (isImported(targetType.getName()) && isImported(valueType.getName())) {
+            return true;
+        }
+
+        if (targetType.getName().equals(valueType.getName()) && targetType.isArray() == valueType.isArray()) {
+            return true;
+        }
+
+        return !targetType.isArray() && !valueType.isArray()
+                && valueType.getName().equals(table.getClassName())
+                && targetType.getName().equals(table.getSuper());
+    }
+
+    private boolean isImported(String typeName) {
+        return table.getImports().stream().anyMatch(imp -> imp.equals(typeName) || imp.endsWith("." + typeName));
+    }
+}
@@ -1,84 +1,91 @@
 package pt.up.fe.comp2025.analysis.passes;
 
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
-import pt.up.fe.comp2025.analysis.AnalysisVisitor;
+import pt.up.fe.comp2025.analysis.AnalysisPass;
+import pt.up.fe.comp2025.ast.CompactAst;
 import pt.up.fe.comp2025.ast.Kind;
-import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 /**
- * Checks if the type of the expression in a return statement is compatible with the method return type.
+ * Checks that every identifier used in an expression is an imported class, a field, a parameter or a local variable.
+ * <p>
+ * Works on the compact AST: declared names are kept as sets of symbols, so each identifier is checked without
+ * comparing strings.
  *
  * @author JBispo
  */
-public class UndeclaredVariable extends AnalysisVisitor {
-
-    private String currentMethod;
+public class UndeclaredVariable implements AnalysisPass {
 
     @Override
-    public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
-        addVisit(Kind.VAR_REF_EXPR, this::visitVarRefExpr);
-        addVisit("Id", this::visitVarRefExpr);
-        addVisit("importDecl", this::visitImportDecl);
-        addVisit(Kind.VAR_DECL.getNodeName(),    (n, t) -> null);
-        addVisit(Kind.PARAM.getNodeName(),       (n, t) -> null);
-
-        setDefaultVisit((node, table) -> {
-            for (var child : node.getChildren())
-                visit(child, table);
-            return null;
-        });
-    }
-
-    private Void visitImportDecl(JmmNode importDecl, SymbolTable table) {
-        var qname      = importDecl.getChildren().get(0);
-        var raw        = qname.get("name");
-        var stripped   = raw.replaceAll("\\[|\\]", "");
-        var importName = stripped.replace(",", ".");
-        table.getImports().add(importName);
-        return null;
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        return analyze(CompactAst.from(root), table);
     }
 
+    @Override
+    public List<Report> analyze(CompactAst ast, SymbolTable table) {
+        var symbols = ast.getSymbols();
+        var reports = new ArrayList<Report>();
+
+        // Names visible in every method
+        var global = new BitSet();
+        for (var imp : table.getImports()) {
+            // Either the full name or its last part
+            addSymbol(global, ast, imp.substring(imp.lastIndexOf('.') + 1));
+        }
+        addSymbols(global, ast, table.getFields());
+
+        // Nodes are in preorder, so identifiers come after the declaration of their method
+        BitSet visible = null;
+        for (int node = 0; node < ast.size(); node++) {
+            if (ast.is(node, Kind.METHOD_DECL)) {
+                var methodName = symbols.getName(ast.getSymbol(node));
+
+                visible = (BitSet) global.clone();
+                addSymbols(visible, ast, table.getParameters(methodName));
+                addSymbols(visible, ast, table.getLocalVariables(methodName));
+                continue;
+            }
+
+            if (!ast.is(node, Kind.ID)) {
+                continue;
+            }
+
+            var name = ast.getSymbol(node);
+            if ((visible != null ? visible : global).get(name)) {
+                continue;
+            }
+
+            reports.add(Report.newError(
+                    Stage.SEMANTIC,
+                    ast.getLine(node), ast.getColumn(node),
+                    "Variable " + symbols.getName(name) + " not declared",
+                    null
+            ));
+        }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
+        return reports;
     }
 
-    private Void visitVarRefExpr(JmmNode varRefExpr, SymbolTable table) {
-        String name = varRefExpr.get("name");
-
-        if (name.equals("true") || name.equals("false") || name.equals("this"))
-            return null;
-
-        boolean isImport = table.getImports().stream()
-                .anyMatch(imp -> imp.equals(name) || imp.endsWith("." + name));
-        if (isImport)
-            return null;
-
-        if (table.getFields().stream().anyMatch(f -> f.getName().equals(name)))
-            return null;
-
-        if (currentMethod != null) {
-            boolean isParam = table.getParameters(currentMethod)
-                    .stream().anyMatch(p -> p.getName().equals(name));
-            boolean isLocal = table.getLocalVariables(currentMethod)
-                    .stream().anyMatch(v -> v.getName().equals(name));
-            if (isParam || isLocal)
-                return null;
+    private static void addSymbols(BitSet set, CompactAst ast, List<Symbol> declared) {
+        for (var symbol : declared) {
+            addSymbol(set, ast, symbol.getName());
         }
-
-        addReport(Report.newError(
-                Stage.SEMANTIC,
-                varRefExpr.getLine(),  varRefExpr.getColumn(),
-                "Variable " + name + " not declared",
-                null
-        ));
-        return null;
     }
 
-
+    /**
+     * Names that do not appear in the code have no symbol, and cannot be used by any identifier.
+     */
+    private static void addSymbol(BitSet set, CompactAst ast, String name) {
+        int id = ast.getSymbols().find(name);
+        if (id != CompactAst.NONE) {
+            set.set(id);
+        }
+    }
 }
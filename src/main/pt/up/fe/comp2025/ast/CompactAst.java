@@ -0,0 +1,349 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, read-only copy of a JmmNode tree, where node data is typed instead of string-keyed.
+ * <p>
+ * Nodes are integers, numbered in preorder, and each property is stored in a flat array indexed by node. Kinds are
+ * the ordinals of {@link Kind}, integer and boolean literals are stored already parsed, and identifiers, operators and
+ * other names are interned in a {@link Symbols} table, so they can be compared and used as array indexes directly.
+ * Integer literals that do not fit an int are kept as text and flagged, for the analysis to report them.
+ * <p>
+ * Since nodes are in preorder, the children of a node start right after it and a full traversal of the tree is a loop
+ * over all node indexes. The tree is converted once and does not follow later changes to the JmmNode tree.
+ */
+public class CompactAst {
+
+    /**
+     * Value of nodes without one.
+     */
+    public static final int NONE = -1;
+
+    public static final int FLAG_ARRAY = 1;
+    public static final int FLAG_PUBLIC = 1 << 1;
+    public static final int FLAG_STATIC = 1 << 2;
+    public static final int FLAG_OUT_OF_RANGE = 1 << 3;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final JmmNode rootNode;
+    private final Symbols symbols;
+
+    private final int size;
+    private final int[] kinds;
+    private final int[] parents;
+    private final int[] ends;
+    private final int[] values;
+    private final int[] secondValues;
+    private final int[] flags;
+    private final int[] lines;
+    private final int[] columns;
+
+    private CompactAst(JmmNode rootNode, int size) {
+        this.rootNode = rootNode;
+        this.symbols = new Symbols();
+        this.size = size;
+        this.kinds = new int[size];
+        this.parents = new int[size];
+        this.ends = new int[size];
+        this.values = new int[size];
+        this.secondValues = new int[size];
+        this.flags = new int[size];
+        this.lines = new int[size];
+        this.columns = new int[size];
+    }
+
+    /**
+     * Converts the given tree.
+     *
+     * @param root
+     * @return
+     */
+    public static CompactAst from(JmmNode root) {
+        var ast = new CompactAst(root, countNodes(root));
+        ast.convert(root, NONE, 0);
+        return ast;
+    }
+
+    /**
+     * @param node
+     * @return the number of nodes in the tree of the given node
+     */
+    public static int countNodes(JmmNode node) {
+        int count = 1;
+        for (var child : node.getChildren()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    /**
+     * Copies the given node and its descendants, starting at the given index.
+     *
+     * @return the index after the last descendant of the node
+     */
+    private int convert(JmmNode node, int parent, int index) {
+        var kind = Kind.fromString(node.getKind());
+
+        kinds[index] = kind.ordinal();
+        parents[index] = parent;
+        lines[index] = node.getLine();
+        columns[index] = node.getColumn();
+        values[index] = convertValue(node, kind);
+        secondValues[index] = node.hasAttribute("superClass") ? symbols.intern(node.get("superClass")) : NONE;
+        flags[index] = convertFlags(node);
+
+        if (kind == Kind.INT) {
+            var literal = node.get("name");
+            secondValues[index] = symbols.intern(literal);
+            if (!fitsInt(literal)) {
+                flags[index] |= FLAG_OUT_OF_RANGE;
+            }
+        }
+
+        int next = index + 1;
+        for (var child : node.getChildren()) {
+            next = convert(child, index, next);
+        }
+
+        ends[index] = next;
+        return next;
+    }
+
+    private int convertValue(JmmNode node, Kind kind) {
+        return switch (kind) {
+            case INT -> fitsInt(node.get("name")) ? Integer.parseInt(node.get("name")) : 0;
+            case BOOLEAN -> Boolean.parseBoolean(node.get("name")) ? 1 : 0;
+            case METHOD_CALL -> symbols.intern(node.get("methodName"));
+            case LENGTH -> symbols.intern(node.get("field"));
+            default -> {
+                if (node.hasAttribute("name")) {
+                    yield symbols.intern(node.get("name"));
+                }
+                if (node.hasAttribute("op")) {
+                    yield symbols.intern(node.get("op"));
+                }
+                yield NONE;
+            }
+        };
+    }
+
+    private static boolean fitsInt(String literal) {
+        try {
+            Integer.parseInt(literal);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int convertFlags(JmmNode node) {
+        int nodeFlags = 0;
+        if (isTrue(node, "isArray")) {
+            nodeFlags |= FLAG_ARRAY;
+        }
+        if (isTrue(node, "isPublic")) {
+            nodeFlags |= FLAG_PUBLIC;
+        }
+        if (isTrue(node, "isStatic")) {
+            nodeFlags |= FLAG_STATIC;
+        }
+        return nodeFlags;
+    }
+
+    private static boolean isTrue(JmmNode node, String attribute) {
+        return node.hasAttribute(attribute) && Boolean.parseBoolean(node.get(attribute));
+    }
+
+    /**
+     * @return the tree this was converted from
+     */
+    public JmmNode getRootNode() {
+        return rootNode;
+    }
+
+    public Symbols getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the number of nodes, which are numbered from 0 (the root) to size - 1
+     */
+    public int size() {
+        return size;
+    }
+
+    public Kind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    /**
+     * @return the ordinal of the kind of the node
+     */
+    public int getKindId(int node) {
+        return kinds[node];
+    }
+
+    public boolean is(int node, Kind kind) {
+        return kinds[node] == kind.ordinal();
+    }
+
+    /**
+     * @return the parent of the node, or {@link #NONE} for the root
+     */
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * @return the index after the last descendant of the node, so the subtree of the node is [node, end)
+     */
+    public int getEnd(int node) {
+        return ends[node];
+    }
+
+    public int getNumChildren(int node) {
+        int count = 0;
+        for (int child = node + 1; child < ends[node]; child = ends[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    public int getChild(int node, int index) {
+        int child = node + 1;
+        for (int i = 0; i < index; i++) {
+            child = ends[child];
+        }
+
+        if (child >= ends[node]) {
+            throw new IndexOutOfBoundsException("Node " + node + " has no child " + index);
+        }
+
+        return child;
+    }
+
+    public List<Integer> getChildren(int node) {
+        var children = new ArrayList<Integer>();
+        for (int child = node + 1; child < ends[node]; child = ends[child]) {
+            children.add(child);
+        }
+        return children;
+    }
+
+    /**
+     * @return the value of an Int node, which must not have {@link #FLAG_OUT_OF_RANGE}
+     */
+    public int getInt(int node) {
+        checkKind(node, Kind.INT);
+        if (hasFlag(node, FLAG_OUT_OF_RANGE)) {
+            throw new RuntimeException("Integer literal " + getLiteral(node) + " does not fit an int");
+        }
+        return values[node];
+    }
+
+    /**
+     * @return the text of an Int node, as written in the code
+     */
+    public String getLiteral(int node) {
+        checkKind(node, Kind.INT);
+        return symbols.getName(secondValues[node]);
+    }
+
+    /**
+     * @return the value of a Boolean node
+     */
+    public boolean getBoolean(int node) {
+        checkKind(node, Kind.BOOLEAN);
+        return values[node] != 0;
+    }
+
+    private void checkKind(int node, Kind kind) {
+        if (!is(node, kind)) {
+            throw new RuntimeException("Node " + node + " is a '" + getKind(node) + "', not a '" + kind + "'");
+        }
+    }
+
+    /**
+     * The name of a node, as a symbol: the name of identifiers, declarations, types and created objects, the method of
+     * calls, the field of Length and the operator of binary expressions.
+     *
+     * @return the symbol of the node, or {@link #NONE} if the node has no name
+     */
+    public int getSymbol(int node) {
+        return values[node];
+    }
+
+    /**
+     * @return the symbol of the superclass of a ClassDecl, or {@link #NONE}
+     */
+    public int getSuperClass(int node) {
+        return secondValues[node];
+    }
+
+    public boolean hasFlag(int node, int flag) {
+        return (flags[node] & flag) != 0;
+    }
+
+    public int getLine(int node) {
+        return lines[node];
+    }
+
+    public int getColumn(int node) {
+        return columns[node];
+    }
+
+    /**
+     * Interned strings, each with a sequential id.
+     */
+    public static class Symbols {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] names = new String[16];
+
+        /**
+         * @param name
+         * @return the id of the name, which is added if not present
+         */
+        public int intern(String name) {
+            var id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+
+            int newId = ids.size();
+            if (newId == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[newId] = name;
+            ids.put(name, newId);
+            return newId;
+        }
+
+        /**
+         * @param name
+         * @return the id of the name, or {@link #NONE} if it was never interned
+         */
+        public int find(String name) {
+            return ids.getOrDefault(name, NONE);
+        }
+
+        public String getName(int id) {
+            return names[id];
+        }
+
+        /**
+         * @return the number of symbols, whose ids go from 0 to size - 1
+         */
+        public int size() {
+            return ids.size();
+        }
+    }
+}
@@ -6,7 +6,9 @@ import pt.up.fe.specs.util.SpecsStrings;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Enum that mirrors the nodes that are supported by the AST.
@@ -33,7 +35,31 @@ public enum Kind {
     ASSIGN_ARRAY_STMT,
     IF_STMT,
     WHILE_STMT,
-    METHOD_CALL;
+    METHOD_CALL,
+
+    IMPORT_DECL,
+    QUALIFIED_NAME,
+    PARAM_LIST,
+    BLOCK,
+    VAR_DECL_STMT,
+    EXPR_STMT,
+    RET_STMT,
+    INT,
+    BOOLEAN,
+    ID,
+    THIS,
+    ARRAY_LITERAL,
+    ARRAY_INIT,
+    NEW_ARRAY,
+    NEW_OBJECT,
+    PARENTHESIS,
+    LENGTH,
+    NOT,
+    MUL_DIV,
+    ADD_SUB,
+    COMPARE,
+    AND,
+    OR;
 
 
     private final String name;
@@ -46,14 +72,26 @@ public enum Kind {
         this.name = SpecsStrings.toCamelCase(name(), "_", true);
     }
 
-    public static Kind fromString(String kind) {
+    /**
+     * Kinds by the names of their nodes.
+     */
+    private static final Map<String, Kind> BY_NODE_NAME = Map.copyOf(Arrays.stream(values())
+            .collect(Collectors.toMap(Kind::getNodeName, Function.identity())));
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+    public static Kind fromString(String kind) {
+        var k = find(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+        return k;
+    }
+
+    /**
+     * @param kind
+     * @return the Kind with the given node name, or null if there is none
+     */
+    public static Kind find(String kind) {
+        return BY_NODE_NAME.get(kind);
     }
 
     public static List<String> toNodeName(Kind firstKind, Kind... otherKinds) {
@@ -0,0 +1,41 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+
+import java.util.function.BiFunction;
+
+/**
+ * PreorderJmmVisitor that finds visit methods through a {@link KindVisitTable}.
+ */
+public abstract class KindPreorderVisitor<D, R> extends PreorderJmmVisitor<D, R> {
+
+    // Created on first use, since buildVisitor is called by the constructor of AJmmVisitor, before the fields of this
+    // class are initialized
+    private KindVisitTable<D, R> visits;
+
+    private KindVisitTable<D, R> getVisits() {
+        if (visits == null) {
+            visits = new KindVisitTable<>();
+        }
+        return visits;
+    }
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        super.addVisit(kind, method);
+        getVisits().add(kind, method);
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, D, R> defaultVisit) {
+        super.setDefaultVisit(defaultVisit);
+        getVisits().setDefault(defaultVisit);
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        var visit = getVisits().get(node);
+        return visit != null ? visit : super.getVisit(node);
+    }
+}
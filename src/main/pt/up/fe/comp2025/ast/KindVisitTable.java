@@ -0,0 +1,61 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.function.BiFunction;
+
+/**
+ * Visit methods indexed by the ordinal of the kind of the node, so that finding the visit method of a node is a single
+ * array load, instead of hashing every kind in the hierarchy of the node.
+ * <p>
+ * Gives the same result as the lookup of AJmmVisitor: the hierarchy of a node is its kind followed by the rule of its
+ * alternative (Expr or Stmt), so the table can answer directly unless a visit was added for one of those rules.
+ * Visits for names that are not a Kind are ignored, since no node can have them in its hierarchy.
+ */
+public class KindVisitTable<D, R> {
+
+    private final BiFunction<JmmNode, D, R>[] visits;
+    private BiFunction<JmmNode, D, R> defaultVisit;
+    private boolean hasRuleVisits;
+
+    @SuppressWarnings("unchecked")
+    public KindVisitTable() {
+        visits = new BiFunction[Kind.values().length];
+    }
+
+    public void add(String kindName, BiFunction<JmmNode, D, R> visit) {
+        var kind = Kind.find(kindName);
+        if (kind == null) {
+            return;
+        }
+
+        if (kind == Kind.EXPR || kind == Kind.STMT) {
+            hasRuleVisits = true;
+        }
+
+        visits[kind.ordinal()] = visit;
+    }
+
+    public void setDefault(BiFunction<JmmNode, D, R> defaultVisit) {
+        this.defaultVisit = defaultVisit;
+    }
+
+    /**
+     * @param node
+     * @return the visit method for the node, or null if the table cannot decide and the hierarchy of the node must be
+     * searched
+     */
+    public BiFunction<JmmNode, D, R> get(JmmNode node) {
+        var kind = Kind.find(node.getKind());
+        if (kind == null) {
+            return null;
+        }
+
+        var visit = visits[kind.ordinal()];
+        if (visit != null) {
+            return visit;
+        }
+
+        return hasRuleVisits ? null : defaultVisit;
+    }
+}
@@ -14,6 +14,7 @@ import pt.up.fe.comp2025.ast.Kind;
 public class TypeUtils {
 
     private final JmmSymbolTable table;
+    private final Nodes nodes = new Nodes();
 
     public TypeUtils(SymbolTable table) {
         this.table = (JmmSymbolTable) table;
@@ -41,6 +42,33 @@ public class TypeUtils {
         return new Type(name, isArray);
     }
 
+    /**
+     * The parts of the expressions of an AST that decide their types, so that the AST and the {@link CompactAst} are
+     * typed by the same rules.
+     *
+     * @param <N> the nodes of the AST
+     */
+    public interface Expressions<N> {
+
+        /**
+         * @return the Kind of the node, or null if it is not a Kind
+         */
+        Kind getKind(N expr);
+
+        /**
+         * @return the class of a NewObject, the method of a MethodCall or the name of an Id
+         */
+        String getName(N expr);
+
+        N getChild(N expr, int index);
+
+        /**
+         * @return the type of the import, local, parameter or field named by the Id, in this order, or null if the
+         * name is not declared
+         */
+        Type getDeclaredType(N id);
+    }
+
     /**
      * Gets the {@link Type} of an arbitrary expression.
      *
@@ -48,53 +76,52 @@ public class TypeUtils {
      * @return
      */
     public Type getExprType(JmmNode expr) {
-        String kind = expr.getKind();
-        Type result = switch (kind) {
-            case "AddSub", "MulDiv" -> newIntType();
-            case "Compare" -> newBooleanType();
-            case "And", "Or", "Not" -> newBooleanType();
-            case "Int" -> newIntType();
-            case "Boolean" -> newBooleanType();
-            case "This" -> new Type(table.getClassName(), false);
-            case "NewArray" -> new Type("int", true);
-            case "NewObject" -> new Type(expr.get("name"), false);
-            case "ArrayAccess" -> newIntType();
-            case "ArrayLiteral" -> new Type("int", true);
-            case "MethodCall" -> {
-                var methodName = expr.get("methodName");
-                var returnType = table.getReturnType(methodName);
+        return getExprType(expr, nodes, table);
+    }
+
+    /**
+     * Gets the {@link Type} of an arbitrary expression of any AST.
+     *
+     * @param expr
+     * @param expressions
+     * @param table
+     * @return
+     */
+    public static <N> Type getExprType(N expr, Expressions<N> expressions, SymbolTable table) {
+        var kind = expressions.getKind(expr);
+        if (kind == null) {
+            return newUnknownType();
+        }
+
+        return switch (kind) {
+            case ADD_SUB, MUL_DIV, INT, ARRAY_ACCESS, LENGTH -> newIntType();
+            case COMPARE, AND, OR, NOT, BOOLEAN -> newBooleanType();
+            case THIS -> new Type(table.getClassName(), false);
+            case NEW_ARRAY, ARRAY_LITERAL -> new Type("int", true);
+            case NEW_OBJECT -> new Type(expressions.getName(expr), false);
+            case METHOD_CALL -> {
+                var returnType = table.getReturnType(expressions.getName(expr));
                 if (returnType != null) {
                     yield returnType;
-                } else {
-                    JmmNode callerNode = expr.getChildren().get(0);
-                    Type callerType = getExprType(callerNode);
-                    if (isImported(callerType.getName())) {
-                        yield newIntType();
-                    } else {
-                        yield new Type("unknown", false);
-                    }
                 }
+                var callerType = getExprType(expressions.getChild(expr, 0), expressions, table);
+                yield isImported(callerType.getName(), table) ? newIntType() : newUnknownType();
             }
-            case "Id" -> {
-                String idName = expr.get("name");
-                if ("true".equals(idName) || "false".equals(idName)) {
+            case ID -> {
+                var name = expressions.getName(expr);
+                if ("true".equals(name) || "false".equals(name)) {
                     yield newBooleanType();
                 }
-                if (table.getImports().stream()
-                        .anyMatch(imp -> imp.equals(idName)
-                                || imp.endsWith("." + idName))) {
-                    yield  new Type(idName, false);
-                }
-                String methodSignature = expr.getAncestor(Kind.METHOD_DECL)
-                        .map(node -> node.get("name")).orElse(null);
-                Type type = getTypeFromSymbolTable(idName, methodSignature);
-                yield type != null ? type : new Type("unknown", false);
-
+                var type = expressions.getDeclaredType(expr);
+                yield type != null ? type : newUnknownType();
             }
-            case "Parenthesis" -> getExprType(expr.getChildren().get(0));
-            default -> new Type("unknown", false);
+            case PARENTHESIS -> getExprType(expressions.getChild(expr, 0), expressions, table);
+            default -> newUnknownType();
         };
-        return result;
+    }
+
+    private static Type newUnknownType() {
+        return new Type("unknown", false);
     }
 
     private Type getTypeFromSymbolTable(String varName, String methodSignature) {
@@ -110,9 +137,38 @@ public class TypeUtils {
         return null;
     }
 
-    private boolean isImported(String typeName) {
-        boolean imported = table.getImports().stream()
-                .anyMatch(imp -> imp.equals(typeName) || imp.endsWith("." + typeName));
-        return imported;
+    private static boolean isImported(String typeName, SymbolTable table) {
+        return table.getImports().stream().anyMatch(imp -> imp.equals(typeName) || imp.endsWith("." + typeName));
+    }
+
+    /**
+     * The expressions of the AST, whose names are attributes.
+     */
+    private class Nodes implements Expressions<JmmNode> {
+
+        @Override
+        public Kind getKind(JmmNode expr) {
+            return Kind.find(expr.getKind());
+        }
+
+        @Override
+        public String getName(JmmNode expr) {
+            return Kind.METHOD_CALL.check(expr) ? expr.get("methodName") : expr.get("name");
+        }
+
+        @Override
+        public JmmNode getChild(JmmNode expr, int index) {
+            return expr.getChildren().get(index);
+        }
+
+        @Override
+        public Type getDeclaredType(JmmNode id) {
+            var name = id.get("name");
+            if (isImported(name, table)) {
+                return new Type(name, false);
+            }
+            String methodSignature = id.getAncestor(Kind.METHOD_DECL).map(node -> node.get("name")).orElse(null);
+            return getTypeFromSymbolTable(name, methodSignature);
+        }
     }
 }
\ No newline at end of file
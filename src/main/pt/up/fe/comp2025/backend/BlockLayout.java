@@ -0,0 +1,485 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.BinaryOpInstruction;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.InvokeStaticInstruction;
+import org.specs.comp.ollir.inst.OpCondInstruction;
+import org.specs.comp.ollir.inst.ReturnInstruction;
+import pt.up.fe.comp2025.optimization.OptUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Orders the basic blocks of a method so that the likely successor of each block follows it, and cold blocks go to the
+ * end of the method.
+ * <p>
+ * Blocks are made of OLLIR instructions, and a conditional branch followed by a goto, which is how OLLIR expresses a
+ * two-way branch, stays in one block. Each edge between blocks gets a weight, from the counts of a {@link Profile} or
+ * from static predictions: a branch that leaves the innermost loop around it is unlikely, a successor that is only
+ * reached from the branch and calls a method of another class is unlikely and cold, as such calls usually report
+ * errors or print results, and a branch on '==' is unlikely while one on '!=' is likely. Blocks are then joined into
+ * chains, heaviest edges first, so that each edge inside a chain becomes a fall through. The chain of the entry comes
+ * first, cold chains (cold blocks and, with a profile, blocks that never ran) last, and the others in the order of the
+ * original code.
+ * <p>
+ * Jumps back to a loop header are not used to join chains, so loops keep the shape rotated by
+ * {@link pt.up.fe.comp2025.backend.peephole.LoopRotation}.
+ */
+public class BlockLayout {
+
+    /**
+     * Probability of the likely successor of a predicted branch.
+     */
+    private static final double LIKELY = 0.9;
+
+    private final Method method;
+    private final String className;
+    private final List<List<JasminInstruction>> code;
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<String, Integer> blockOfLabel = new HashMap<>();
+
+    private BlockLayout(Method method, String className, List<List<JasminInstruction>> code) {
+        this.method = method;
+        this.className = className;
+        this.code = code;
+    }
+
+    /**
+     * @param method
+     * @param className class of the method
+     * @param code      code of each instruction of the method, without its labels
+     * @param profile   counts of the method, or null to use static predictions
+     * @return the code of the method, with its labels
+     */
+    public static List<JasminInstruction> layout(Method method, String className, List<List<JasminInstruction>> code,
+                                                 Profile profile) {
+        var layout = new BlockLayout(method, className, code);
+        if (!layout.buildBlocks()) {
+            return inOrder(method, code);
+        }
+
+        var counts = profile != null ? profile.getInstructionCounts(method) : null;
+        if (counts != null && counts.length > 0 && counts[0] > 0) {
+            layout.setProfileWeights(profile, counts);
+        } else {
+            layout.setStaticWeights();
+        }
+
+        return layout.emit(layout.order());
+    }
+
+    /**
+     * @return the code of the method in the original order of its instructions
+     */
+    public static List<JasminInstruction> inOrder(Method method, List<List<JasminInstruction>> code) {
+        var result = new ArrayList<JasminInstruction>();
+        var instructions = method.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            for (var label : method.getLabels(instructions.get(i))) {
+                result.add(JasminInstruction.label(label));
+            }
+            result.addAll(code.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Splits the instructions into blocks and finds their successors.
+     *
+     * @return false if the code of some branch is not as expected, then the blocks are left in order
+     */
+    private boolean buildBlocks() {
+        var instructions = method.getInstructions();
+        int n = instructions.size();
+
+        var leaders = new boolean[n + 1];
+        leaders[0] = true;
+        leaders[n] = true;
+        for (int i = 0; i < n; i++) {
+            var inst = instructions.get(i);
+            if (!method.getLabels(inst).isEmpty()) {
+                leaders[i] = true;
+            }
+            if (inst instanceof CondBranchInstruction || inst instanceof GotoInstruction
+                    || inst instanceof ReturnInstruction) {
+                leaders[i + 1] = true;
+            }
+        }
+
+        // The goto of a two-way branch belongs to the block of the branch
+        for (int i = 0; i + 1 < n; i++) {
+            if (instructions.get(i) instanceof CondBranchInstruction
+                    && instructions.get(i + 1) instanceof GotoInstruction
+                    && method.getLabels(instructions.get(i + 1)).isEmpty()) {
+                leaders[i + 1] = false;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (!leaders[i]) {
+                continue;
+            }
+
+            int end = i + 1;
+            while (!leaders[end]) {
+                end++;
+            }
+
+            var block = new Block(blocks.size(), i, end, method.getLabels(instructions.get(i)));
+            for (var label : block.labels) {
+                blockOfLabel.put(label, block.index);
+            }
+            blocks.add(block);
+        }
+
+        for (var block : blocks) {
+            var last = instructions.get(block.end - 1);
+            var beforeLast = block.end - block.start > 1 ? instructions.get(block.end - 2) : null;
+
+            if (last instanceof CondBranchInstruction cond) {
+                block.branch = block.end - 1;
+                block.taken = blockOfLabel.get(cond.getLabel());
+                block.next = block.index + 1 < blocks.size() ? block.index + 1 : null;
+            } else if (last instanceof GotoInstruction jump && beforeLast instanceof CondBranchInstruction cond) {
+                block.branch = block.end - 2;
+                block.taken = blockOfLabel.get(cond.getLabel());
+                block.next = blockOfLabel.get(jump.getLabel());
+            } else if (last instanceof GotoInstruction jump) {
+                block.next = blockOfLabel.get(jump.getLabel());
+            } else if (!(last instanceof ReturnInstruction) && block.index + 1 < blocks.size()) {
+                block.next = block.index + 1;
+                block.fallsThrough = true;
+            }
+
+            if (block.branch >= 0) {
+                var branchCode = code.get(block.branch);
+                if (block.taken == null || block.next == null
+                        || branchCode.isEmpty() || !branchCode.getLast().isConditionalBranch()) {
+                    return false;
+                }
+            }
+        }
+
+        // Loops, from their jumps back
+        for (var block : blocks) {
+            for (var succ : block.successors()) {
+                blocks.get(succ).predecessors++;
+                if (succ <= block.index) {
+                    var header = blocks.get(succ);
+                    header.loopEnd = Math.max(header.loopEnd, block.index);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private void setProfileWeights(Profile profile, long[] counts) {
+        for (var block : blocks) {
+            block.frequency = counts[block.start];
+            block.cold = counts[block.start] == 0;
+
+            long last = counts[block.end - 1];
+            if (block.branch >= 0) {
+                long fallthrough = profile.getCount(method.getMethodName(), Profile.fallthroughCounter(block.branch));
+                block.takenWeight = counts[block.branch] - fallthrough;
+                block.nextWeight = fallthrough;
+            } else {
+                block.nextWeight = last;
+            }
+        }
+    }
+
+    /**
+     * Frequencies relative to the entry, going through the blocks in order, where the jumps back are ignored and each
+     * loop header multiplies what reaches it.
+     */
+    private void setStaticWeights() {
+        for (var block : blocks) {
+            double takenProbability = block.branch >= 0 ? predict(block) : 0;
+            block.frequency += block.index == 0 ? 1 : 0;
+            if (block.loopEnd >= 0) {
+                block.frequency *= OptUtils.LOOP_WEIGHT;
+            }
+
+            block.takenWeight = block.frequency * takenProbability;
+            block.nextWeight = block.frequency * (block.branch >= 0 ? 1 - takenProbability : 1);
+
+            if (block.taken != null && block.taken > block.index) {
+                blocks.get(block.taken).frequency += block.takenWeight;
+            }
+            if (block.next != null && block.next > block.index) {
+                blocks.get(block.next).frequency += block.nextWeight;
+            }
+        }
+    }
+
+    /**
+     * @return the probability that the branch of the block is taken
+     */
+    private double predict(Block block) {
+        var taken = blocks.get(block.taken);
+        var next = blocks.get(block.next);
+
+        // Loop exits
+        var loop = getInnermostLoop(block);
+        if (loop != null && isInLoop(taken, loop) != isInLoop(next, loop)) {
+            return isInLoop(taken, loop) ? LIKELY : 1 - LIKELY;
+        }
+
+        // Calls to other classes, in successors that are only reached from the branch
+        boolean takenCalls = taken.predecessors == 1 && callsOtherClass(taken);
+        boolean nextCalls = next.predecessors == 1 && callsOtherClass(next);
+        if (takenCalls != nextCalls) {
+            (takenCalls ? taken : next).cold = true;
+            return takenCalls ? 1 - LIKELY : LIKELY;
+        }
+
+        // Comparisons for equality
+        if (method.getInstructions().get(block.branch) instanceof OpCondInstruction cond
+                && cond.getCondition() instanceof BinaryOpInstruction comparison) {
+            var opType = comparison.getOperation().getOpType();
+            if (opType == OperationType.EQ) {
+                return 1 - LIKELY;
+            }
+            if (opType == OperationType.NEQ) {
+                return LIKELY;
+            }
+        }
+
+        return 0.5;
+    }
+
+    private Block getInnermostLoop(Block block) {
+        Block loop = null;
+        for (var header : blocks) {
+            if (isInLoop(block, header) && (loop == null || header.index > loop.index)) {
+                loop = header;
+            }
+        }
+        return loop;
+    }
+
+    private static boolean isInLoop(Block block, Block header) {
+        return header.loopEnd >= 0 && block.index >= header.index && block.index <= header.loopEnd;
+    }
+
+    private boolean callsOtherClass(Block block) {
+        for (int i = block.start; i < block.end; i++) {
+            Instruction inst = method.getInstructions().get(i);
+            if (inst instanceof AssignInstruction assign) {
+                inst = assign.getRhs();
+            }
+            if (inst instanceof InvokeStaticInstruction invoke && !className.equals(getClassName(invoke))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getClassName(InvokeStaticInstruction invoke) {
+        var owner = invoke.getOperands().get(0);
+        return owner instanceof LiteralElement literal ? literal.getLiteral() : ((Operand) owner).getName();
+    }
+
+    /**
+     * Joins the blocks into chains, heaviest edges first, and orders the chains.
+     *
+     * @return the blocks, in their new order
+     */
+    private List<Block> order() {
+        var edges = new ArrayList<Edge>();
+        for (var block : blocks) {
+            if (block.taken != null) {
+                edges.add(new Edge(block, blocks.get(block.taken), block.takenWeight));
+            }
+            if (block.next != null) {
+                edges.add(new Edge(block, blocks.get(block.next), block.nextWeight));
+            }
+        }
+
+        // Ties keep the original order, with fall throughs first
+        edges.sort(Comparator.comparingDouble(Edge::weight).reversed()
+                .thenComparing(edge -> edge.to().index != edge.from().index + 1)
+                .thenComparingInt(edge -> edge.from().index));
+
+        for (var edge : edges) {
+            var from = edge.from();
+            var to = edge.to();
+            boolean joinable = to.index > from.index
+                    && to.index != 0
+                    && from.chainNext == null && to.chainPrevious == null
+                    && findHead(from) != to
+                    && (from.cold || !to.cold);
+            if (joinable) {
+                from.chainNext = to;
+                to.chainPrevious = from;
+            }
+        }
+
+        var heads = new ArrayList<Block>();
+        for (var block : blocks) {
+            if (block.chainPrevious == null) {
+                heads.add(block);
+            }
+        }
+        heads.sort(Comparator.comparing((Block head) -> head.index != 0).thenComparing(head -> head.cold));
+
+        var order = new ArrayList<Block>();
+        for (var head : heads) {
+            for (var block = head; block != null; block = block.chainNext) {
+                order.add(block);
+            }
+        }
+        return order;
+    }
+
+    private static Block findHead(Block block) {
+        while (block.chainPrevious != null) {
+            block = block.chainPrevious;
+        }
+        return block;
+    }
+
+    /**
+     * Generates the blocks in the given order, changing their last branch so that they reach the same successors.
+     */
+    private List<JasminInstruction> emit(List<Block> order) {
+        var usedLabels = new HashSet<>(method.getLabels().keySet());
+        var result = new ArrayList<JasminInstruction>();
+
+        for (int i = 0; i < order.size(); i++) {
+            var block = order.get(i);
+            var following = i + 1 < order.size() ? order.get(i + 1) : null;
+
+            for (var label : block.labels) {
+                result.add(JasminInstruction.label(label));
+            }
+            if (block.labels.isEmpty()) {
+                result.add(JasminInstruction.label(getLabel(block, usedLabels)));
+            }
+
+            int last = block.branch >= 0 ? block.branch : block.end;
+            for (int j = block.start; j < last; j++) {
+                result.addAll(code.get(j));
+            }
+
+            if (block.branch >= 0) {
+                var branchCode = code.get(block.branch);
+                result.addAll(branchCode.subList(0, branchCode.size() - 1));
+                var branch = branchCode.getLast();
+                var taken = blocks.get(block.taken);
+                var next = blocks.get(block.next);
+
+                // Loop headers keep both jumps, which is the shape rotated by the peephole stage
+                if (following == next) {
+                    result.add(branch);
+                } else if (following == taken && block.loopEnd < 0) {
+                    var opcode = branch.getOpcode();
+                    var prefix = opcode.substring(0, opcode.length() - 2);
+                    result.add(JasminInstruction.of(prefix + JasminInstruction.negate(branch.getCondition()),
+                            getLabel(next, usedLabels)));
+                } else {
+                    result.add(branch);
+                    result.add(JasminInstruction.of("goto", getLabel(next, usedLabels)));
+                }
+            } else if (block.fallsThrough && following != blocks.get(block.next)) {
+                result.add(JasminInstruction.of("goto", getLabel(blocks.get(block.next), usedLabels)));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the first label of the block, or a new one if it has none
+     */
+    private static String getLabel(Block block, Set<String> usedLabels) {
+        if (!block.labels.isEmpty()) {
+            return block.labels.get(0);
+        }
+
+        if (block.newLabel == null) {
+            var label = "block" + block.index;
+            while (usedLabels.contains(label)) {
+                label += "_";
+            }
+            usedLabels.add(label);
+            block.newLabel = label;
+        }
+        return block.newLabel;
+    }
+
+    private static class Block {
+        final int index;
+        final int start;
+        final int end;
+        final List<String> labels;
+
+        /**
+         * Instruction of the conditional branch that ends the block, or -1.
+         */
+        int branch = -1;
+
+        /**
+         * Successor when the branch is taken.
+         */
+        Integer taken;
+
+        /**
+         * Successor when the branch is not taken, or the only successor.
+         */
+        Integer next;
+
+        boolean fallsThrough;
+        int predecessors;
+
+        /**
+         * Last block of the loop this block is the header of, or -1.
+         */
+        int loopEnd = -1;
+
+        double frequency;
+        double takenWeight;
+        double nextWeight;
+        boolean cold;
+
+        Block chainPrevious;
+        Block chainNext;
+        String newLabel;
+
+        Block(int index, int start, int end, List<String> labels) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.labels = labels;
+        }
+
+        List<Integer> successors() {
+            var successors = new ArrayList<Integer>();
+            if (taken != null) {
+                successors.add(taken);
+            }
+            if (next != null) {
+                successors.add(next);
+            }
+            return successors;
+        }
+    }
+
+    private record Edge(Block from, Block to, double weight) {
+    }
+}
@@ -0,0 +1,267 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.NewInstruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
+import org.specs.comp.ollir.type.ArrayType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lowering of array literals whose elements are all constants.
+ * <p>
+ * In OLLIR, an array literal is a new array followed by one store per element, which in Jasmin takes several bytes per
+ * element and can make methods with large constant tables exceed the size limit of the JVM. Instead, the values are
+ * packed into string constants, which live in the constant pool. A static field of the class is created from them
+ * once, in the static initializer, and each evaluation of the literal clones that field, so the code of the method has
+ * the same size whatever the length of the literal.
+ */
+public class ConstantArrays {
+
+    /**
+     * Shorter literals are cheaper to store element by element than to clone.
+     */
+    public static final int MIN_LENGTH = 4;
+
+    /**
+     * Static method of the class that converts a string created by {@link #pack(int[])} back into an array.
+     */
+    private static final String UNPACK = "$unpackInts";
+
+    /**
+     * Maximum length, in bytes, of a string in the constant pool.
+     */
+    private static final int MAX_CONSTANT_BYTES = 65535;
+
+    private static final String NL = "\n";
+    private static final String TAB = "   ";
+
+    /**
+     * Checks if the instruction at the given index creates an array whose elements are then all set, in order, to
+     * constants.
+     *
+     * @param method
+     * @param index
+     * @return the values of the array, whose length is also the number of stores after the instruction, or null
+     */
+    public static int[] match(Method method, int index) {
+        var instructions = method.getInstructions();
+
+        if (!(instructions.get(index) instanceof AssignInstruction assign)
+                || !(assign.getDest() instanceof Operand array)
+                || array instanceof ArrayOperand
+                || !(assign.getRhs() instanceof NewInstruction newArray)
+                || !(newArray.getReturnType() instanceof ArrayType arrayType)
+                || !arrayType.getElementType().toString().equals("INT32")
+                || newArray.getOperands().size() < 2
+                || !(newArray.getOperands().get(1) instanceof LiteralElement sizeLiteral)) {
+            return null;
+        }
+
+        int length = Integer.parseInt(sizeLiteral.getLiteral());
+        if (length < MIN_LENGTH || index + length >= instructions.size()) {
+            return null;
+        }
+
+        var values = new int[length];
+        for (int i = 0; i < length; i++) {
+            var value = getConstantStore(method, instructions.get(index + 1 + i), array.getName(), i);
+            if (value == null) {
+                return null;
+            }
+            values[i] = value;
+        }
+
+        return values;
+    }
+
+    /**
+     * @return the value stored by the instruction if it is 'array[index] := constant' and no jump reaches it
+     */
+    private static Integer getConstantStore(Method method, Instruction instruction, String array, int index) {
+        if (!method.getLabels(instruction).isEmpty()
+                || !(instruction instanceof AssignInstruction assign)
+                || !(assign.getDest() instanceof ArrayOperand dest)
+                || !dest.getName().equals(array)
+                || dest.getIndexOperands().size() != 1
+                || !(dest.getIndexOperands().get(0) instanceof LiteralElement indexLiteral)
+                || Integer.parseInt(indexLiteral.getLiteral()) != index
+                || !(assign.getRhs() instanceof SingleOpInstruction single)
+                || !(single.getSingleOperand() instanceof LiteralElement value)) {
+            return null;
+        }
+
+        return Integer.parseInt(value.getLiteral());
+    }
+
+    /**
+     * @param methodIndex index of the method in the class
+     * @param arrayIndex  index of the literal in the method
+     * @return the name of the static field that holds the values of a literal
+     */
+    public static String getFieldName(int methodIndex, int arrayIndex) {
+        return "$array" + methodIndex + "_" + arrayIndex;
+    }
+
+    /**
+     * Code that leaves a copy of the values of the given field on the stack.
+     *
+     * @param className
+     * @param fieldName
+     * @return
+     */
+    public static String generateLoad(String className, String fieldName) {
+        return "getstatic " + className + "/" + fieldName + " [I" + NL
+                + "invokevirtual [I/clone()Ljava/lang/Object;" + NL
+                + "checkcast [I" + NL;
+    }
+
+    /**
+     * Code of the static initializer that creates the given fields, with the method returned by
+     * {@link #generateUnpack()}.
+     *
+     * @param className
+     * @param fields    values of each field, by name
+     * @return
+     */
+    public static String generateFieldInits(String className, List<FieldValues> fields) {
+        var code = new StringBuilder();
+
+        for (var field : fields) {
+            var chunks = pack(field.values());
+            for (int i = 0; i < chunks.size(); i++) {
+                code.append(TAB).append("ldc ").append(chunks.get(i)).append(NL);
+                if (i > 0) {
+                    code.append(TAB).append("invokevirtual java/lang/String/concat(Ljava/lang/String;)Ljava/lang/String;")
+                            .append(NL);
+                }
+            }
+            code.append(TAB).append("invokestatic ").append(className).append("/").append(UNPACK)
+                    .append("(Ljava/lang/String;)[I").append(NL);
+            code.append(TAB).append("putstatic ").append(className).append("/").append(field.name()).append(" [I")
+                    .append(NL);
+        }
+
+        return code.toString();
+    }
+
+    /**
+     * Generates the method used by the static initializer to unpack the values of the fields.
+     *
+     * @return
+     */
+    public static String generateUnpack() {
+        // Each value is two chars, the high and the low 16 bits
+        return """
+                .method private static %s(Ljava/lang/String;)[I
+                   .limit stack 6
+                   .limit locals 3
+                   aload_0
+                   invokevirtual java/lang/String/length()I
+                   iconst_1
+                   ishr
+                   newarray int
+                   astore_1
+                   iconst_0
+                   istore_2
+                loop:
+                   iload_2
+                   aload_1
+                   arraylength
+                   if_icmpge end
+                   aload_1
+                   iload_2
+                   aload_0
+                   iload_2
+                   iconst_1
+                   ishl
+                   invokevirtual java/lang/String/charAt(I)C
+                   bipush 16
+                   ishl
+                   aload_0
+                   iload_2
+                   iconst_1
+                   ishl
+                   iconst_1
+                   iadd
+                   invokevirtual java/lang/String/charAt(I)C
+                   ior
+                   iastore
+                   iinc 2 1
+                   goto loop
+                end:
+                   aload_1
+                   areturn
+                .end method
+
+                """.formatted(UNPACK);
+    }
+
+    /**
+     * Packs the values into Jasmin string literals, two chars per value. Strings in the constant pool are limited to
+     * 64KB, so large arrays are split into several literals, to be concatenated.
+     *
+     * @param values
+     * @return the string literals, quoted and escaped
+     */
+    public static List<String> pack(int[] values) {
+        var literals = new ArrayList<String>();
+        var literal = new StringBuilder("\"");
+        int bytes = 0;
+
+        for (int value : values) {
+            char high = (char) (value >>> 16);
+            char low = (char) value;
+
+            int size = utf8Size(high) + utf8Size(low);
+            if (bytes + size > MAX_CONSTANT_BYTES) {
+                literals.add(literal.append('"').toString());
+                literal = new StringBuilder("\"");
+                bytes = 0;
+            }
+
+            appendChar(literal, high);
+            appendChar(literal, low);
+            bytes += size;
+        }
+
+        literals.add(literal.append('"').toString());
+        return literals;
+    }
+
+    /**
+     * Jasmin reads sources with the platform charset, so anything other than printable ASCII is escaped.
+     */
+    static void appendChar(StringBuilder literal, char c) {
+        if (c >= 0x20 && c < 0x7F && c != '"' && c != '\\') {
+            literal.append(c);
+        } else {
+            literal.append(String.format("\\u%04x", (int) c));
+        }
+    }
+
+    /**
+     * @return the size of the char in the modified UTF-8 of class files, where 0 takes two bytes
+     */
+    private static int utf8Size(char c) {
+        if (c != 0 && c < 0x80) {
+            return 1;
+        }
+        return c < 0x800 ? 2 : 3;
+    }
+
+    /**
+     * The values of a static field created by the static initializer.
+     *
+     * @param name
+     * @param values
+     */
+    public record FieldValues(String name, int[] values) {
+    }
+}
@@ -0,0 +1,299 @@
+package pt.up.fe.comp2025.backend;
+
+import jasmin.ClassFile;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs compiled Jasmin programs inside the current JVM, instead of starting a new java process for each of them.
+ * <p>
+ * The Jasmin code is assembled in memory and its class is loaded by a new class loader that only sees the JDK and the
+ * given classpath (by default, the compiled J-- libraries), so programs cannot interfere with each other or with the
+ * compiler. Whatever a program prints to System.out and System.err is captured per thread, which allows several
+ * programs to run at the same time.
+ * <p>
+ * The code runs exactly as assembled, so the JVM verifies it as it would in a separate process. A program that does
+ * not finish within the timeout is reported as such and its thread is interrupted, which stops programs waiting in
+ * the libraries. A program that keeps computing is abandoned: it runs on a daemon thread, so it does not keep the JVM
+ * alive. Reading from System.in is not supported.
+ */
+public class InProcessRunner {
+
+    /**
+     * Same limit used when running the programs in a separate process.
+     */
+    public static final long DEFAULT_TIMEOUT_MS = 5_000;
+
+    /**
+     * Return value reported for programs that did not finish in time.
+     */
+    public static final int TIMEOUT_RETURN_VALUE = -1;
+
+    private static final InheritableThreadLocal<Capture> CAPTURE = new InheritableThreadLocal<>();
+
+    private static PrintStream installedOut;
+    private static PrintStream installedErr;
+
+    private final List<URL> classpath;
+    private final long timeoutMs;
+
+    private final ExecutorService programThreads = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "jmm-program");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InProcessRunner() {
+        this(List.of(new File(TestUtils.getLibsClasspath())), DEFAULT_TIMEOUT_MS);
+    }
+
+    public InProcessRunner(List<File> classpath, long timeoutMs) {
+        this.classpath = new ArrayList<>();
+        for (var file : classpath) {
+            try {
+                this.classpath.add(file.toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid classpath element '" + file + "'", e);
+            }
+        }
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Assembles Jasmin code into the bytes of a class file.
+     *
+     * @param jasminCode
+     * @return
+     */
+    public static AssembledClass assemble(String jasminCode) {
+        var classFile = new ClassFile();
+
+        try {
+            classFile.readJasmin(new StringReader(jasminCode), "program.j", false);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not assemble Jasmin code", e);
+        }
+
+        if (classFile.errorCount() > 0) {
+            throw new RuntimeException("Found " + classFile.errorCount() + " error(s) while assembling Jasmin code");
+        }
+
+        var bytes = new ByteArrayOutputStream();
+        try {
+            classFile.write(bytes);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not write class file", e);
+        }
+
+        // Jasmin uses '/' in class names
+        return new AssembledClass(classFile.getClassName().replace('/', '.'), bytes.toByteArray());
+    }
+
+    public ProcessOutputAsString run(JasminResult jasminResult) {
+        return run(jasminResult.getJasminCode(), Collections.emptyList());
+    }
+
+    /**
+     * Assembles the Jasmin code and runs its main method.
+     *
+     * @param jasminCode
+     * @param args       arguments for the main method
+     * @return the captured output, with return value 0 if main returned normally
+     */
+    public ProcessOutputAsString run(String jasminCode, List<String> args) {
+        var assembled = assemble(jasminCode);
+        var capture = new Capture();
+
+        Future<Integer> execution = programThreads.submit(() -> {
+            CAPTURE.set(capture);
+            try {
+                return invokeMain(assembled, args, capture);
+            } finally {
+                CAPTURE.remove();
+            }
+        });
+
+        int returnValue;
+        try {
+            returnValue = execution.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            execution.cancel(true);
+            capture.err.println("Program did not finish within " + timeoutMs + " ms");
+
+            // The output ends at the timeout, the exception thrown by the stopped program is not part of it
+            return new ProcessOutputAsString(TIMEOUT_RETURN_VALUE, capture.getStdOut(), capture.getStdErr());
+        } catch (InterruptedException e) {
+            execution.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for program", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not run program", e.getCause());
+        }
+
+        return new ProcessOutputAsString(returnValue, capture.getStdOut(), capture.getStdErr());
+    }
+
+    /**
+     * Runs several programs in parallel, using one thread per available processor.
+     *
+     * @param jasminCodes
+     * @return the output of each program, in the same order
+     */
+    public List<ProcessOutputAsString> runAll(List<String> jasminCodes) {
+        var pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            var futures = new ArrayList<Future<ProcessOutputAsString>>();
+            for (var jasminCode : jasminCodes) {
+                futures.add(pool.submit(() -> run(jasminCode, Collections.emptyList())));
+            }
+
+            var outputs = new ArrayList<ProcessOutputAsString>();
+            for (var future : futures) {
+                outputs.add(future.get());
+            }
+            return outputs;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running programs", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not run program", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int invokeMain(AssembledClass assembled, List<String> args, Capture capture) throws IOException {
+        installStreams();
+
+        try (var loader = new ProgramClassLoader(classpath.toArray(URL[]::new), assembled)) {
+            var mainClass = loader.loadClass(assembled.name());
+            var main = mainClass.getMethod("main", String[].class);
+            main.invoke(null, (Object) args.toArray(String[]::new));
+            return 0;
+        } catch (InvocationTargetException e) {
+            // Same output as an uncaught exception in the main thread
+            capture.err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace(capture.err);
+            return 1;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            capture.err.println("Error: could not run class " + assembled.name());
+            e.printStackTrace(capture.err);
+            return 1;
+        }
+    }
+
+    /**
+     * Replaces System.out and System.err by streams that write to the capture of the current thread, or to the
+     * previous stream for threads that are not running a program. Streams are only replaced again if someone else
+     * changed them in the meantime.
+     */
+    private static synchronized void installStreams() {
+        if (System.out != installedOut) {
+            installedOut = new PrintStream(new CapturingStream(System.out, false), true);
+            System.setOut(installedOut);
+        }
+
+        if (System.err != installedErr) {
+            installedErr = new PrintStream(new CapturingStream(System.err, true), true);
+            System.setErr(installedErr);
+        }
+    }
+
+    /**
+     * The name and bytes of an assembled class.
+     *
+     * @param name
+     * @param bytes
+     */
+    public record AssembledClass(String name, byte[] bytes) {
+    }
+
+    /**
+     * Loads the program class from memory and everything else from the classpath, without delegating to the class
+     * loader of the compiler.
+     */
+    private static class ProgramClassLoader extends URLClassLoader {
+
+        private final AssembledClass program;
+
+        ProgramClassLoader(URL[] classpath, AssembledClass program) {
+            super(classpath, ClassLoader.getPlatformClassLoader());
+            this.program = program;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(program.name())) {
+                return defineClass(name, program.bytes(), 0, program.bytes().length);
+            }
+            return super.findClass(name);
+        }
+    }
+
+    private static class Capture {
+        private final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+        private final PrintStream out = new PrintStream(outBytes, true, StandardCharsets.UTF_8);
+        private final PrintStream err = new PrintStream(errBytes, true, StandardCharsets.UTF_8);
+
+        String getStdOut() {
+            return outBytes.toString(StandardCharsets.UTF_8);
+        }
+
+        String getStdErr() {
+            return errBytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class CapturingStream extends OutputStream {
+
+        private final PrintStream original;
+        private final boolean isErr;
+
+        CapturingStream(PrintStream original, boolean isErr) {
+            this.original = original;
+            this.isErr = isErr;
+        }
+
+        private PrintStream target() {
+            var capture = CAPTURE.get();
+            if (capture == null) {
+                return original;
+            }
+            return isErr ? capture.err : capture.out;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+    }
+}
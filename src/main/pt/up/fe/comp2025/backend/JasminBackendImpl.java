@@ -3,6 +3,7 @@ package pt.up.fe.comp2025.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
 
 /**
  * Implementation of the Jasmin backend.
@@ -15,10 +16,21 @@ public class JasminBackendImpl implements JasminBackend {
         //System.out.println("Converting OLLIR to Jasmin:\n" + ollirResult.getOllirCode());
 
         var jasminGenerator = new JasminGenerator(ollirResult);
-        var jasminCode = jasminGenerator.build();
+        String jasminCode;
+        try (var scope = CompilerMetrics.measure("backend")) {
+            jasminCode = jasminGenerator.build();
+            if (scope.isEnabled()) {
+                scope.count("lines", jasminCode.lines().count());
+            }
+        }
 
         //System.out.println("Generated Jasmin:\n" + jasminCode);
 
+        var metrics = CompilerMetrics.current();
+        if (metrics.isPresent()) {
+            return new MeasuredJasminResult(ollirResult, jasminCode, jasminGenerator.getReports(), metrics.get());
+        }
+
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
@@ -4,20 +4,27 @@ import org.specs.comp.ollir.ClassUnit;
 import org.specs.comp.ollir.LiteralElement;
 import org.specs.comp.ollir.Method;
 import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.OperationType;
 import org.specs.comp.ollir.inst.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.optimization.GeneratedOllirResult;
+import pt.up.fe.comp2025.utils.ParallelUtils;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import org.specs.comp.ollir.type.Type;
 import org.specs.comp.ollir.type.ArrayType;
+import org.specs.comp.ollir.type.ClassType;
 import org.specs.comp.ollir.Element;
 import org.specs.comp.ollir.inst.SingleOpInstruction;
 import org.specs.comp.ollir.ArrayOperand;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,7 +33,7 @@ import static org.specs.comp.ollir.OperationType.*;
 /**
  * Generates Jasmin code from an OllirResult.
  * <p>
- * One JasminGenerator instance per OllirResult.
+ * One JasminGenerator instance per OllirResult, which uses a new instance for each method.
  */
 public class JasminGenerator {
 
@@ -50,7 +57,34 @@ public class JasminGenerator {
 
     private int localLimit;
 
+    private final JasminPeephole peephole;
+
+    /**
+     * Index of the method being generated in the class, which names its constant arrays.
+     */
+    private int methodIndex;
+
+    /**
+     * Constant array literals of the method being generated, which become static fields of the class.
+     */
+    private final List<ConstantArrays.FieldValues> constantArrays = new ArrayList<>();
+
+    /**
+     * Counters of the method being generated, if the code is instrumented to write a profile.
+     */
+    private ProfileInstrumentation profile;
+
+    /**
+     * Whether the blocks of the method are reordered, and the profile used to do it, if any.
+     */
+    private boolean layout;
+    private Profile layoutProfile;
+
     public JasminGenerator(OllirResult ollirResult) {
+        this(ollirResult, new JasminPeephole());
+    }
+
+    public JasminGenerator(OllirResult ollirResult, JasminPeephole peephole) {
         this.ollirResult = ollirResult;
 
         reports = new ArrayList<>();
@@ -59,6 +93,7 @@ public class JasminGenerator {
 
 
         types = new JasminUtils(ollirResult);
+        this.peephole = peephole;
 
         this.generators = new FunctionClassMap<>();
         generators.put(ClassUnit.class, this::generateClassUnit);
@@ -112,6 +147,43 @@ public class JasminGenerator {
                 .append(classUnit.getSuperClass() != null && !classUnit.getSuperClass().isEmpty() ? classUnit.getSuperClass() : "java/lang/Object")
                 .append("\n\n");
 
+        var methods = classUnit.getMethods().stream()
+                .filter(method -> !method.isConstructMethod())
+                .toList();
+
+        // Each method is generated by its own generator, which keeps the state of that method (limits, labels), so
+        // methods can be generated in parallel and the result does not depend on the other methods
+        var config = ollirResult.getConfig();
+        var threads = CompilerConfig.getThreads(config);
+        boolean instrument = CompilerConfig.getProfileInstrument(config);
+        var layoutProfile = CompilerConfig.getProfileInput(config).map(Profile::read).orElse(null);
+        // The counters follow the original order of the code, so instrumented code is not reordered
+        boolean layout = !instrument && (CompilerConfig.getOptimize(config) || layoutProfile != null);
+        var generated = ParallelUtils.map(methods, threads, method -> {
+            try (var scope = CompilerMetrics.measure("backend/method", method.getMethodName())) {
+                var generator = new JasminGenerator(ollirResult, peephole);
+                generator.methodIndex = methods.indexOf(method);
+                generator.layout = layout;
+                generator.layoutProfile = layoutProfile;
+                if (instrument) {
+                    generator.profile = new ProfileInstrumentation(classUnit.getClassName(), method,
+                            generator.methodIndex);
+                }
+                var methodCode = generator.generateMethod(method);
+                scope.count("ollirInstructions", method.getInstructions().size());
+                return new GeneratedMethod(methodCode, generator.constantArrays,
+                        instrument ? generator.profile.getCounters() : null);
+            }
+        });
+
+        var constantArrays = generated.stream()
+                .flatMap(method -> method.constantArrays().stream())
+                .toList();
+        var counters = generated.stream()
+                .map(GeneratedMethod::counters)
+                .filter(method -> method != null)
+                .toList();
+
         // Fields
         for (var field : classUnit.getFields()) {
             jasminCode.append(".field public ")
@@ -119,6 +191,12 @@ public class JasminGenerator {
                     .append(toDescriptor(field.getFieldType())) // Assuming toDescriptor handles Type
                     .append("\n");
         }
+        for (var constantArray : constantArrays) {
+            jasminCode.append(".field private static final ").append(constantArray.name()).append(" [I\n");
+        }
+        for (var method : counters) {
+            jasminCode.append(".field private static final ").append(method.fieldName()).append(" [J\n");
+        }
         jasminCode.append("\n");
 
         // Default constructor
@@ -130,13 +208,24 @@ public class JasminGenerator {
         jasminCode.append("    return\n");
         jasminCode.append(".end method\n\n");
 
-
-        for (Method method : classUnit.getMethods()) {
-            if (method.isConstructMethod()) {
-                continue;
-            }
-            jasminCode.append(generateMethod(method));
+        if (!constantArrays.isEmpty() || instrument) {
+            jasminCode.append(".method static <clinit>()V").append(NL);
+            jasminCode.append(TAB).append(".limit stack 2").append(NL);
+            jasminCode.append(TAB).append(".limit locals 0").append(NL);
+            jasminCode.append(ConstantArrays.generateFieldInits(classUnit.getClassName(), constantArrays));
+            jasminCode.append(ProfileInstrumentation.generateFieldInits(classUnit.getClassName(), counters));
+            jasminCode.append(TAB).append("return").append(NL);
+            jasminCode.append(".end method").append(NL).append(NL);
         }
+        if (!constantArrays.isEmpty()) {
+            jasminCode.append(ConstantArrays.generateUnpack());
+        }
+        if (instrument) {
+            var file = CompilerConfig.getProfileOutput(config).orElse(classUnit.getClassName() + ".profile");
+            jasminCode.append(ProfileInstrumentation.generateDump(classUnit.getClassName(), file, counters));
+        }
+
+        generated.forEach(method -> jasminCode.append(method.code()));
         return jasminCode.toString();
 
 //        // This way, build is idempotent
@@ -213,132 +302,145 @@ public class JasminGenerator {
                 && method.getReturnType().toString().equals("INT32")) {
             stackLimit = 3;
         } else {
-            stackLimit = localLimit;
+            stackLimit = method.getVarTable().size();
+        }
+        if (profile != null) {
+            stackLimit = Math.max(stackLimit, ProfileInstrumentation.STACK_SIZE);
         }
 
         code.append(TAB).append(".limit stack ").append(stackLimit).append(NL);
         code.append(TAB).append(".limit locals ").append(localLimit).append(NL);
 
-        var labelMap     = method.getLabels();
+        var instructionCode = generateInstructions(method);
+        List<JasminInstruction> body;
+        if (profile != null) {
+            body = addCounters(method, instructionCode);
+        } else if (layout) {
+            try (var scope = CompilerMetrics.measure("backend/blockLayout", methodName)) {
+                body = BlockLayout.layout(method, ollirResult.getOllirClass().getClassName(), instructionCode,
+                        layoutProfile);
+                scope.count("instructions", body.size());
+            }
+        } else {
+            body = BlockLayout.inOrder(method, instructionCode);
+        }
+
+        List<JasminInstruction> optimized;
+        try (var scope = CompilerMetrics.measure("backend/peephole", methodName)) {
+            optimized = peephole.optimize(body, method, GeneratedOllirResult.getTemporaries(ollirResult));
+            scope.count("instructionsBefore", body.size());
+            scope.count("instructionsAfter", optimized.size());
+        }
+
+        if (profile != null && isMain(method)) {
+            optimized = ProfileInstrumentation.addExitHandler(ollirResult.getOllirClass().getClassName(), optimized);
+            code.append(TAB).append(ProfileInstrumentation.EXIT_HANDLER_DIRECTIVE).append(NL);
+        }
+
+        for (var inst : optimized) {
+            code.append(inst.isLabel() ? "" : TAB).append(inst).append(NL);
+        }
+
+        code.append(".end method").append(NL);
+        currentMethod = null;
+        return code.toString();
+    }
+
+    /**
+     * @return the code of each instruction of the method, without its labels
+     */
+    private List<List<JasminInstruction>> generateInstructions(Method method) {
+        var result = new ArrayList<List<JasminInstruction>>();
         var instructions = method.getInstructions();
 
         for (int i = 0; i < instructions.size(); i++) {
             var inst = instructions.get(i);
-
-            if (inst instanceof AssignInstruction binAssign) {
-                var destTmp = binAssign.getDest();
-                var rhs     = binAssign.getRhs();
-                if (destTmp instanceof Operand tmpOp
-                        && rhs instanceof BinaryOpInstruction binOp
-                        && binOp.getOperation().getOpType() == ADD
-                        && binOp.getLeftOperand() instanceof Operand baseOp
-                        && binOp.getRightOperand() instanceof LiteralElement lit
-                        && i + 1 < instructions.size()) {
-
-                    Instruction next = instructions.get(i + 1);
-                    if (next instanceof AssignInstruction movAssign
-                            && movAssign.getDest() instanceof Operand destOp
-                            && movAssign.getRhs() instanceof SingleOpInstruction soInst
-                            && soInst.getSingleOperand() instanceof Operand rhsOp
-                            && rhsOp.getName().equals(tmpOp.getName())
-                            && destOp.getName().equals(baseOp.getName())) {
-
-                        int val = Integer.parseInt(lit.getLiteral());
-                        if (val >= -128 && val <= 127) {
-                            int reg = currentMethod.getVarTable()
-                                    .get(destOp.getName())
-                                    .getVirtualReg();
-                            code.append(TAB).append("iinc ")
-                                    .append(reg).append(" ").append(val)
-                                    .append(NL);
-                            i++;
-                            continue;
-                        }
-                    }
+            var instCode = new ArrayList<JasminInstruction>();
+            result.add(instCode);
+
+            var constantValues = ConstantArrays.match(method, i);
+            if (constantValues != null) {
+                addCode(instCode, generateConstantArray((AssignInstruction) inst, constantValues));
+                // The stores of the elements are replaced too
+                for (int j = 0; j < constantValues.length; j++) {
+                    result.add(new ArrayList<>());
                 }
+                i += constantValues.length;
+            } else {
+                addCode(instCode, apply(inst));
             }
+        }
 
-            for (var entry : labelMap.entrySet()) {
-                if (entry.getValue().equals(inst)) {
-                    code.append(TAB).append(entry.getKey()).append(":").append(NL);
-                }
+        return result;
+    }
+
+    /**
+     * @return the code of the method in order, with the counters of the profile
+     */
+    private List<JasminInstruction> addCounters(Method method, List<List<JasminInstruction>> instructionCode) {
+        var body = new ArrayList<JasminInstruction>();
+        addCode(body, profile.generateIncrement(Profile.ENTRY));
+
+        var instructions = method.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            var labels = method.getLabels(inst);
+            for (var label : labels) {
+                body.add(JasminInstruction.label(label));
+            }
+            if (!labels.isEmpty()) {
+                addCode(body, profile.generateIncrement(Profile.labelCounter(labels.get(0))));
+            }
+            if (inst instanceof ReturnInstruction && isMain(method)) {
+                addCode(body, ProfileInstrumentation.generateDumpCall(ollirResult.getOllirClass().getClassName()));
             }
 
+            body.addAll(instructionCode.get(i));
 
-            if (inst instanceof AssignInstruction asg
-                    && asg.getRhs() instanceof BinaryOpInstruction bin
-                    && bin.getRightOperand() instanceof LiteralElement lit
-                    && "0".equals(lit.getLiteral())
-                    && i + 1 < instructions.size()
-                    && instructions.get(i + 1) instanceof SingleOpCondInstruction cond) {
-
-                var dest   = (Operand) asg.getDest();
-                var condOp = (Operand) cond.getOperands().get(0);
-                if (dest.getName().equals(condOp.getName())) {
-                    code.append(TAB).append(apply(bin.getLeftOperand()));
-
-                    String instr;
-                    switch (bin.getOperation().getOpType()) {
-                        case LTH  -> instr = "iflt ";
-                        case GTE  -> instr = "ifge ";
-                        case GTH  -> instr = "ifgt ";
-                        case LTE  -> instr = "ifle ";
-                        case EQ   -> instr = "ifeq ";
-                        case NEQ  -> instr = "ifne ";
-                        default   -> instr = "";
-                    }
-
-                    code.append(instr).append(cond.getLabel()).append(NL);
-                    i++;
-                    continue;
-                }
+            if (inst instanceof CondBranchInstruction) {
+                addCode(body, profile.generateIncrement(Profile.fallthroughCounter(i)));
             }
-            code.append(TAB).append(apply(inst));
         }
 
-        code.append(".end method").append(NL);
-        currentMethod = null;
-        return code.toString();
+        return body;
     }
 
-    private String generateAssign(AssignInstruction assign) {
-        var code = new StringBuilder();
+    private static void addCode(List<JasminInstruction> body, String code) {
+        for (var line : code.split(NL)) {
+            if (!line.isBlank()) {
+                body.add(JasminInstruction.parse(line));
+            }
+        }
+    }
 
-        if (assign.getDest() instanceof Operand && assign.getRhs() instanceof BinaryOpInstruction) {
-            var bin = (BinaryOpInstruction) assign.getRhs();
-            if (bin.getOperation().getOpType() == ADD) {
-                var left   = bin.getLeftOperand();
-                var right  = bin.getRightOperand();
-                Operand destOp = (Operand) assign.getDest();
-
-                if (left instanceof Operand
-                        && right instanceof LiteralElement
-                        && destOp.getName().equals(((Operand) left).getName())) {
-                    try {
-                        int val = Integer.parseInt(((LiteralElement) right).getLiteral());
-                        if (val >= -128 && val <= 127) {
-                            int reg = currentMethod.getVarTable().get(destOp.getName()).getVirtualReg();
-                            code.append("iinc ").append(reg).append(" ").append(val).append(NL);
-                            return code.toString();
-                        }
-                    } catch (NumberFormatException ignored) {}
-                }
+    private static boolean isMain(Method method) {
+        return method.isStaticMethod() && method.getMethodName().equals("main");
+    }
 
-                if (right instanceof Operand
-                        && left instanceof LiteralElement
-                        && destOp.getName().equals(((Operand) right).getName())) {
-                    try {
-                        int val = Integer.parseInt(((LiteralElement) left).getLiteral());
-                        if (val >= -128 && val <= 127) {
-                            int reg = currentMethod.getVarTable().get(destOp.getName()).getVirtualReg();
-                            code.append("iinc ").append(reg).append(" ").append(val).append(NL);
-                            return code.toString();
-                        }
-                    } catch (NumberFormatException ignored) {}
-                }
-            }
+    /**
+     * Assigns a copy of a static field with the given values to the destination of the assignment.
+     */
+    private String generateConstantArray(AssignInstruction assign, int[] values) {
+        // Literals with the same values can share the field, since each use gets a copy
+        var fieldName = constantArrays.stream()
+                .filter(field -> Arrays.equals(field.values(), values))
+                .map(ConstantArrays.FieldValues::name)
+                .findFirst()
+                .orElse(null);
+
+        if (fieldName == null) {
+            fieldName = ConstantArrays.getFieldName(methodIndex, constantArrays.size());
+            constantArrays.add(new ConstantArrays.FieldValues(fieldName, values));
         }
 
+        int reg = currentMethod.getVarTable().get(((Operand) assign.getDest()).getName()).getVirtualReg();
+        return ConstantArrays.generateLoad(ollirResult.getOllirClass().getClassName(), fieldName)
+                + JasminInstruction.local("astore", reg) + NL;
+    }
+
+    private String generateAssign(AssignInstruction assign) {
+        var code = new StringBuilder();
+
         if (assign.getDest() instanceof ArrayOperand) {
             var ac = (ArrayOperand) assign.getDest();
             int arrReg = currentMethod.getVarTable().get(ac.getName()).getVirtualReg();
@@ -365,18 +467,10 @@ public class JasminGenerator {
     }
 
     private String generateLiteral(LiteralElement literal) {
+        // The shortest instruction for integer constants is chosen by the peephole stage
         String lit = literal.getLiteral();
         try {
-            int val = Integer.parseInt(lit);
-            if (val >= -1 && val <= 5) {
-                return (val == -1 ? "iconst_m1" : "iconst_" + val) + "\n";
-            }
-            if (val >= -128 && val <= 127) {
-                return "bipush " + val + "\n";
-            }
-            if (val >= -32768 && val <= 32767) {
-                return "sipush " + val + "\n";
-            }
+            Integer.parseInt(lit);
         } catch (NumberFormatException e) {
             if (!(lit.startsWith("\"") && lit.endsWith("\""))) {
                 lit = "\"" + lit + "\"";
@@ -419,11 +513,13 @@ public class JasminGenerator {
             case SUB   -> code.append("isub").append(NL);
             case MUL   -> code.append("imul").append(NL);
             case DIV   -> code.append("idiv").append(NL);
-            case LTH   -> {
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> {
+                // Materializes the boolean, the peephole stage fuses it with the branch that tests it
+                var opType = binaryOp.getOperation().getOpType();
                 int id = booleanOpCount++;
-                String t = "LTH_true" + id;
-                String e = "LTH_end"  + id;
-                code.append("if_icmplt ").append(t).append(NL)
+                String t = opType + "_true" + id;
+                String e = opType + "_end"  + id;
+                code.append("if_icmp").append(getCondition(opType)).append(" ").append(t).append(NL)
                         .append("iconst_0").append(NL)
                         .append("goto ").append(e).append(NL)
                         .append(t).append(":").append(NL)
@@ -609,18 +705,8 @@ public class JasminGenerator {
         code.append(apply(unaryOp.getOperand()));
 
         switch (unaryOp.getOperation().getOpType()) {
-            case NOTB -> {
-                int id = booleanOpCount++;
-                String trueLabel = "NOTB_true_" + id;
-                String endLabel = "NOTB_end_" + id;
-
-                code.append("ifeq ").append(trueLabel).append(NL);
-                code.append("iconst_0").append(NL);
-                code.append("goto ").append(endLabel).append(NL);
-                code.append(trueLabel).append(":").append(NL);
-                code.append("iconst_1").append(NL);
-                code.append(endLabel).append(":").append(NL);
-            }
+            // Booleans are 0 or 1, so negation does not need any branch
+            case NOTB -> code.append("iconst_1").append(NL).append("ixor").append(NL);
             default -> throw new NotImplementedException("Unary operation not implemented: " + unaryOp.getOperation().getOpType());
         }
 
@@ -642,10 +728,16 @@ public class JasminGenerator {
                 ? ((LiteralElement) mElem).getLiteral()
                 : ((Operand) mElem).getName();
 
-        String rawType = ((Operand) receiver).getType().toString();
-        String className = rawType.startsWith("OBJECTREF(") && rawType.endsWith(")")
-                ? rawType.substring(10, rawType.length() - 1)
-                : rawType;
+        String className;
+        if (receiver.getType() instanceof ClassType classType) {
+            // Covers both object references and 'this'
+            className = classType.getName();
+        } else {
+            String rawType = receiver.getType().toString();
+            className = rawType.startsWith("OBJECTREF(") && rawType.endsWith(")")
+                    ? rawType.substring(10, rawType.length() - 1)
+                    : rawType;
+        }
 
         String params = operands.subList(2, operands.size()).stream()
                 .map(a -> toDescriptor(a.getType()))
@@ -670,8 +762,16 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * After register allocation variables share locals, so the limit is the highest local used, not the number of
+     * variables.
+     */
     private int calculateLocalLimit(Method method) {
-        return method.getVarTable().size();
+        int limit = (method.isStaticMethod() ? 0 : 1) + method.getParams().size();
+        for (var descriptor : method.getVarTable().values()) {
+            limit = Math.max(limit, descriptor.getVirtualReg() + 1);
+        }
+        return limit;
     }
 
     private String generateArrayLoad(ArrayOperand ac) {
@@ -690,24 +790,42 @@ public class JasminGenerator {
 
     private String generateOpCond(OpCondInstruction inst) {
         var sb = new StringBuilder();
+
+        if (inst.getCondition() instanceof UnaryOpInstruction unary) {
+            if (unary.getOperation().getOpType() != NOTB) {
+                throw new NotImplementedException("Cond operation not implemented: " + unary.getOperation().getOpType());
+            }
+            sb.append(apply(unary.getOperand()));
+            sb.append("ifeq ").append(inst.getLabel()).append(NL);
+            return sb.toString();
+        }
+
         sb.append(apply(inst.getOperands().get(0)));
         sb.append(apply(inst.getOperands().get(1)));
 
         var condInst = inst.getCondition();
         var opType = condInst.getOperation().getOpType();
 
-        switch (opType) {
-            case LTH   -> sb.append("if_icmplt ").append(inst.getLabel()).append(NL);
-            case GTH   -> sb.append("if_icmpgt ").append(inst.getLabel()).append(NL);
-            case LTE   -> sb.append("if_icmple ").append(inst.getLabel()).append(NL);
-            case GTE   -> sb.append("if_icmpge ").append(inst.getLabel()).append(NL);
-            case EQ    -> sb.append("if_icmpeq ").append(inst.getLabel()).append(NL);
-            case NEQ   -> sb.append("if_icmpne ").append(inst.getLabel()).append(NL);
-            default    -> throw new NotImplementedException("Cond operation not implemented: " + opType);
-        }
+        sb.append("if_icmp").append(getCondition(opType)).append(" ").append(inst.getLabel()).append(NL);
 
         return sb.toString();
     }
 
+    private String getCondition(OperationType opType) {
+        return switch (opType) {
+            case LTH -> "lt";
+            case GTH -> "gt";
+            case LTE -> "le";
+            case GTE -> "ge";
+            case EQ  -> "eq";
+            case NEQ -> "ne";
+            default  -> throw new NotImplementedException("Cond operation not implemented: " + opType);
+        };
+    }
+
 
-}
\ No newline at end of file
+
+    private record GeneratedMethod(String code, List<ConstantArrays.FieldValues> constantArrays,
+                                   ProfileInstrumentation.Counters counters) {
+    }
+}
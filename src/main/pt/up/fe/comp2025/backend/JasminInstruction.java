@@ -0,0 +1,247 @@
+package pt.up.fe.comp2025.backend;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalInt;
+
+/**
+ * A single entry of a Jasmin method body: either a label or an instruction with its textual operand.
+ * <p>
+ * The generators still produce text, which is split into these entries so that the peephole stage can work on a list
+ * of instructions before the final method body is emitted.
+ */
+public class JasminInstruction {
+
+    private static final List<String> CONDITIONS = List.of("eq", "ne", "lt", "ge", "gt", "le");
+
+    private final String label;
+    private final String opcode;
+    private final String operand;
+
+    private JasminInstruction(String label, String opcode, String operand) {
+        this.label = label;
+        this.opcode = opcode;
+        this.operand = operand;
+    }
+
+    public static JasminInstruction label(String name) {
+        return new JasminInstruction(name, null, "");
+    }
+
+    public static JasminInstruction of(String opcode, String operand) {
+        return new JasminInstruction(null, opcode, operand == null ? "" : operand);
+    }
+
+    public static JasminInstruction of(String opcode) {
+        return of(opcode, "");
+    }
+
+    /**
+     * Parses a line of Jasmin code.
+     *
+     * @param line a non-blank line with a single label or instruction
+     * @return the corresponding entry
+     */
+    public static JasminInstruction parse(String line) {
+        var trimmed = line.trim();
+
+        if (trimmed.endsWith(":")) {
+            return label(trimmed.substring(0, trimmed.length() - 1));
+        }
+
+        int space = trimmed.indexOf(' ');
+        if (space < 0) {
+            return of(trimmed);
+        }
+
+        return of(trimmed.substring(0, space), trimmed.substring(space + 1).trim());
+    }
+
+    /**
+     * Selects the shortest instruction that pushes the given integer constant.
+     *
+     * @param value
+     * @return
+     */
+    public static JasminInstruction pushInt(int value) {
+        if (value == -1) {
+            return of("iconst_m1");
+        }
+        if (value >= 0 && value <= 5) {
+            return of("iconst_" + value);
+        }
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return of("bipush", Integer.toString(value));
+        }
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return of("sipush", Integer.toString(value));
+        }
+        return of("ldc", Integer.toString(value));
+    }
+
+    /**
+     * Selects the shortest load or store for the given local variable.
+     *
+     * @param opcode one of iload, aload, istore or astore
+     * @param reg    the local variable index
+     * @return
+     */
+    public static JasminInstruction local(String opcode, int reg) {
+        return reg <= 3 ? of(opcode + "_" + reg) : of(opcode, Integer.toString(reg));
+    }
+
+    /**
+     * Returns the condition that holds when the given one does not, e.g. "lt" for "ge".
+     *
+     * @param condition one of eq, ne, lt, ge, gt or le
+     * @return
+     */
+    public static String negate(String condition) {
+        int index = CONDITIONS.indexOf(condition);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a branch condition: " + condition);
+        }
+        return CONDITIONS.get(index ^ 1);
+    }
+
+    public boolean isLabel() {
+        return label != null;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getOpcode() {
+        return opcode;
+    }
+
+    public String getOperand() {
+        return operand;
+    }
+
+    public boolean is(String opcode) {
+        return opcode.equals(this.opcode);
+    }
+
+    public JasminInstruction withOperand(String operand) {
+        return of(opcode, operand);
+    }
+
+    /**
+     * @return true if this is a goto or a conditional branch
+     */
+    public boolean isBranch() {
+        return is("goto") || isConditionalBranch();
+    }
+
+    public boolean isConditionalBranch() {
+        return opcode != null && opcode.startsWith("if");
+    }
+
+    /**
+     * @return true if the instruction following this one can only be reached through a jump
+     */
+    public boolean isUnconditionalExit() {
+        return is("goto") || is("return") || is("ireturn") || is("areturn") || is("athrow");
+    }
+
+    /**
+     * @return the condition of a conditional branch (e.g. "lt" for both "iflt" and "if_icmplt")
+     */
+    public String getCondition() {
+        return opcode.substring(opcode.length() - 2);
+    }
+
+    /**
+     * @return the label this branch jumps to, or null if this is not a branch
+     */
+    public String getTarget() {
+        return isBranch() ? operand : null;
+    }
+
+    /**
+     * @return the value pushed by this instruction, if it pushes an integer constant
+     */
+    public OptionalInt getIntConstant() {
+        if (opcode == null) {
+            return OptionalInt.empty();
+        }
+
+        if (opcode.equals("iconst_m1")) {
+            return OptionalInt.of(-1);
+        }
+
+        if (opcode.startsWith("iconst_")) {
+            return OptionalInt.of(Integer.parseInt(opcode.substring("iconst_".length())));
+        }
+
+        if (opcode.equals("bipush") || opcode.equals("sipush") || opcode.equals("ldc")) {
+            try {
+                return OptionalInt.of(Integer.parseInt(operand));
+            } catch (NumberFormatException e) {
+                return OptionalInt.empty();
+            }
+        }
+
+        return OptionalInt.empty();
+    }
+
+    public boolean isLoad() {
+        return opcode != null && (opcode.startsWith("iload") || opcode.startsWith("aload"));
+    }
+
+    public boolean isStore() {
+        return opcode != null && (opcode.startsWith("istore") || opcode.startsWith("astore"));
+    }
+
+    /**
+     * @return the local variable read or written by this instruction (including iinc), or -1 if there is none
+     */
+    public int getLocal() {
+        if (is("iinc")) {
+            return Integer.parseInt(operand.split("\\s+")[0]);
+        }
+
+        if (!isLoad() && !isStore()) {
+            return -1;
+        }
+
+        int underscore = opcode.indexOf('_');
+        if (underscore >= 0) {
+            return Integer.parseInt(opcode.substring(underscore + 1));
+        }
+
+        return Integer.parseInt(operand);
+    }
+
+    /**
+     * @return 'i' or 'a' for loads and stores, the type prefix of the opcode
+     */
+    public char getLocalType() {
+        return opcode.charAt(0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JasminInstruction that)) return false;
+        return Objects.equals(label, that.label)
+                && Objects.equals(opcode, that.opcode)
+                && operand.equals(that.operand);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(label, opcode, operand);
+    }
+
+    @Override
+    public String toString() {
+        if (isLabel()) {
+            return label + ":";
+        }
+
+        return operand.isEmpty() ? opcode : opcode + " " + operand;
+    }
+}
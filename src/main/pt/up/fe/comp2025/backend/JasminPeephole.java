@@ -0,0 +1,69 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.peephole.*;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies a table of peephole rules to the instructions of a method until none of them changes the code.
+ * <p>
+ * The rules work on a {@link PeepholeCode}, which keeps the positions of the labels and the branches to them up to date
+ * as the rules change the code.
+ */
+public class JasminPeephole {
+
+    private final List<PeepholeRule> rules;
+
+    public JasminPeephole() {
+        this(buildRules());
+    }
+
+    public JasminPeephole(List<PeepholeRule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Peephole rules that will be applied to each method, in this order.
+     *
+     * @return
+     */
+    public static List<PeepholeRule> buildRules() {
+        return List.of(
+                new ConstantSelection(),
+                new LoadStoreElimination(),
+                new IincSelection(),
+                new CompareFusion(),
+                new RedundantGoto(),
+                new JumpThreading(),
+                new LoopRotation(),
+                new UnreachableCodeElimination(),
+                new UnusedLabelElimination()
+        );
+    }
+
+    /**
+     * @param code
+     * @param method      the OLLIR method the code was generated from
+     * @param temporaries names of the variables of the method that are temporaries of the OLLIR generator
+     * @return
+     */
+    public List<JasminInstruction> optimize(List<JasminInstruction> code, Method method, Set<String> temporaries) {
+        var result = new PeepholeCode(code);
+
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = 0; i < result.size(); i++) {
+                for (var rule : rules) {
+                    if (i < result.size() && rule.apply(result, i, method, temporaries)) {
+                        changed = true;
+                    }
+                }
+            }
+        } while (changed);
+
+        return result;
+    }
+}
@@ -0,0 +1,30 @@
+package pt.up.fe.comp2025.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+
+import java.util.List;
+
+/**
+ * A JasminResult together with the metrics collected while compiling it, returned by the backend when metrics are
+ * being collected (see {@link CompilerMetrics#start()}).
+ */
+public class MeasuredJasminResult extends JasminResult {
+
+    private final CompilerMetrics metrics;
+
+    public MeasuredJasminResult(OllirResult ollirResult, String jasminCode, List<Report> reports,
+                                CompilerMetrics metrics) {
+        super(ollirResult, jasminCode, reports);
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the metrics of every stage up to, and including, the backend
+     */
+    public CompilerMetrics getMetrics() {
+        return metrics;
+    }
+}
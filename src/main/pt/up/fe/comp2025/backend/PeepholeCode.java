@@ -0,0 +1,144 @@
+package pt.up.fe.comp2025.backend;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The instructions of a method while the peephole rules rewrite it.
+ * <p>
+ * The position of each label and the number of branches to it are computed once, when the code is created, and are
+ * updated by every change to the list, so that the rules do not scan the method for them.
+ */
+public class PeepholeCode extends AbstractList<JasminInstruction> implements RandomAccess {
+
+    private final List<JasminInstruction> code;
+
+    /**
+     * Position of each label.
+     */
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    /**
+     * Number of branches to each label, only for the labels that have some.
+     */
+    private final Map<String, Integer> references = new HashMap<>();
+
+    public PeepholeCode(List<JasminInstruction> code) {
+        this.code = new ArrayList<>(code);
+        for (int i = 0; i < this.code.size(); i++) {
+            added(this.code.get(i), i);
+        }
+    }
+
+    /**
+     * Counts the branches that jump to the given label.
+     *
+     * @param label
+     * @return
+     */
+    public int countReferences(String label) {
+        return references.getOrDefault(label, 0);
+    }
+
+    /**
+     * @param label
+     * @return the position of the given label, or -1 if it is not in the code
+     */
+    public int indexOfLabel(String label) {
+        return labels.getOrDefault(label, -1);
+    }
+
+    @Override
+    public JasminInstruction get(int index) {
+        return code.get(index);
+    }
+
+    @Override
+    public int size() {
+        return code.size();
+    }
+
+    @Override
+    public JasminInstruction set(int index, JasminInstruction inst) {
+        var old = code.set(index, inst);
+        removed(old);
+        added(inst, index);
+        return old;
+    }
+
+    @Override
+    public void add(int index, JasminInstruction inst) {
+        shiftLabels(index, 1);
+        code.add(index, inst);
+        added(inst, index);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends JasminInstruction> insts) {
+        var added = List.copyOf(insts);
+        shiftLabels(index, added.size());
+        code.addAll(index, added);
+        for (int i = 0; i < added.size(); i++) {
+            added(added.get(i), index + i);
+        }
+        modCount++;
+        return !added.isEmpty();
+    }
+
+    @Override
+    public JasminInstruction remove(int index) {
+        var old = code.remove(index);
+        removed(old);
+        shiftLabels(index, -1);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        var range = code.subList(fromIndex, toIndex);
+        for (var inst : range) {
+            removed(inst);
+        }
+        range.clear();
+        shiftLabels(fromIndex, fromIndex - toIndex);
+        modCount++;
+    }
+
+    private void added(JasminInstruction inst, int index) {
+        if (inst.isLabel()) {
+            labels.put(inst.getLabel(), index);
+        }
+        var target = inst.getTarget();
+        if (target != null) {
+            references.merge(target, 1, Integer::sum);
+        }
+    }
+
+    private void removed(JasminInstruction inst) {
+        if (inst.isLabel()) {
+            labels.remove(inst.getLabel());
+        }
+        var target = inst.getTarget();
+        if (target != null) {
+            references.computeIfPresent(target, (label, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Moves the labels at or after the given position by the given number of instructions.
+     */
+    private void shiftLabels(int from, int delta) {
+        for (var entry : labels.entrySet()) {
+            if (entry.getValue() >= from) {
+                entry.setValue(entry.getValue() + delta);
+            }
+        }
+    }
+}
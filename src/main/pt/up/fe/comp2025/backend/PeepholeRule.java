@@ -0,0 +1,23 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.Method;
+
+import java.util.Set;
+
+/**
+ * Represents a peephole rewrite over the instructions of a Jasmin method.
+ */
+public interface PeepholeRule {
+
+    /**
+     * Tries to rewrite the code starting at the given position.
+     *
+     * @param code        the instructions of the method, changed in place through its list operations
+     * @param index       the position where the pattern of the rule should start
+     * @param method      the OLLIR method the code was generated from
+     * @param temporaries names of the variables of the method that are temporaries of the OLLIR generator
+     * @return true if the code was changed
+     */
+    boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries);
+
+}
@@ -0,0 +1,158 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.ReturnInstruction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Execution counts of the methods of a class, written by the code generated with '-p=instrument' and read with
+ * '-p=use'.
+ * <p>
+ * Each line of a profile is {@code <method> <counter> <count>}. A method has a counter for its entry, one
+ * for each instruction with labels, named after its first label, and one for the fall through of each conditional
+ * branch, named after the index of the branch. Together they give the count of every instruction of the OLLIR code
+ * the profile was generated from, so a profile is only valid for the same program compiled with the same options.
+ * <p>
+ * A method also has a line {@code <method> fingerprint <value>} with the {@link #fingerprint(Method) fingerprint} of
+ * its code, and the counts of a method whose code has another fingerprint are ignored, with a warning.
+ */
+public class Profile {
+
+    public static final String ENTRY = "entry";
+    public static final String FINGERPRINT = "fingerprint";
+
+    private static final String LABEL = "label:";
+    private static final String FALLTHROUGH = "fallthrough:";
+
+    private final Map<String, Map<String, Long>> counts;
+    private final Map<String, Long> fingerprints;
+    private final Set<String> warned = ConcurrentHashMap.newKeySet();
+
+    private Profile(Map<String, Map<String, Long>> counts, Map<String, Long> fingerprints) {
+        this.counts = counts;
+        this.fingerprints = fingerprints;
+    }
+
+    public static Profile read(File file) {
+        try {
+            return parse(Files.readString(file.toPath()));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read profile '" + file + "'", e);
+        }
+    }
+
+    public static Profile parse(String text) {
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        Map<String, Long> fingerprints = new HashMap<>();
+
+        for (var line : text.lines().map(String::strip).filter(line -> !line.isEmpty()).toList()) {
+            var parts = line.split(" ");
+            if (parts.length != 3) {
+                throw new RuntimeException("Invalid profile line '" + line + "'");
+            }
+
+            try {
+                if (parts[1].equals(FINGERPRINT)) {
+                    fingerprints.put(parts[0], Long.parseLong(parts[2]));
+                    continue;
+                }
+                counts.computeIfAbsent(parts[0], method -> new HashMap<>())
+                        .merge(parts[1], Long.parseLong(parts[2]), Long::sum);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid profile line '" + line + "'", e);
+            }
+        }
+
+        return new Profile(counts, fingerprints);
+    }
+
+    /**
+     * The counters of a method only depend on the number of its instructions, their labels and which of them are
+     * conditional branches, so the fingerprint is a hash of these.
+     *
+     * @param method
+     * @return
+     */
+    public static long fingerprint(Method method) {
+        var shape = new StringBuilder();
+        for (var inst : method.getInstructions()) {
+            shape.append(inst instanceof CondBranchInstruction ? "branch" : "inst")
+                    .append(method.getLabels(inst))
+                    .append(';');
+        }
+        return Integer.toUnsignedLong(shape.toString().hashCode());
+    }
+
+    public static String labelCounter(String label) {
+        return LABEL + label;
+    }
+
+    public static String fallthroughCounter(int instructionIndex) {
+        return FALLTHROUGH + instructionIndex;
+    }
+
+    public boolean contains(String methodName) {
+        return counts.containsKey(methodName);
+    }
+
+    /**
+     * @return the value of the counter, or 0 if the profile does not have it
+     */
+    public long getCount(String methodName, String counter) {
+        return counts.getOrDefault(methodName, Map.of()).getOrDefault(counter, 0L);
+    }
+
+    /**
+     * Follows the code of the method from its entry: a labeled instruction runs as many times as its label, the
+     * instruction after a conditional branch as many times as the fall through of the branch, and, like any other
+     * instruction, a call runs as many times as the instruction before it.
+     *
+     * @param method
+     * @return how many times each instruction of the method ran, or null if the profile does not have the method or
+     * was generated from other code
+     */
+    public long[] getInstructionCounts(Method method) {
+        var name = method.getMethodName();
+        if (!contains(name)) {
+            return null;
+        }
+        if (!Long.valueOf(fingerprint(method)).equals(fingerprints.get(name))) {
+            if (warned.add(name)) {
+                System.err.println("Warning: the profile of method '" + name
+                        + "' was generated from other code, so it is ignored");
+            }
+            return null;
+        }
+
+        var instructions = method.getInstructions();
+        var result = new long[instructions.size()];
+        long current = getCount(name, ENTRY);
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            var labels = method.getLabels(inst);
+            if (!labels.isEmpty()) {
+                current = getCount(name, labelCounter(labels.get(0)));
+            }
+
+            result[i] = current;
+
+            if (inst instanceof CondBranchInstruction) {
+                current = getCount(name, fallthroughCounter(i));
+            } else if (inst instanceof GotoInstruction || inst instanceof ReturnInstruction) {
+                current = 0;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,201 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counters of the code generated with '-p=instrument', which write a {@link Profile} when main returns or throws.
+ * <p>
+ * Each method has a static long array with one element per counter, created by the static initializer, and each
+ * counter is incremented by a few instructions placed where the operand stack is empty. Before each return of main,
+ * and in a handler of main that rethrows what main throws, a static method of the class writes the
+ * {@link Profile#fingerprint(Method) fingerprint} of each method and the value of every counter to the profile file.
+ * Programs are entered through main, so the profile of a class run in another way is not written.
+ */
+public class ProfileInstrumentation {
+
+    /**
+     * Static method of the class that writes the profile.
+     */
+    private static final String DUMP = "$dumpProfile";
+
+    /**
+     * Stack needed to increment a counter.
+     */
+    public static final int STACK_SIZE = 6;
+
+    private static final String NL = "\n";
+    private static final String TAB = "   ";
+
+    private final String className;
+    private final String methodName;
+    private final long fingerprint;
+    private final String fieldName;
+    private final List<String> counters = new ArrayList<>();
+
+    /**
+     * @param className
+     * @param method
+     * @param methodIndex index of the method in the class, which names its array of counters
+     */
+    public ProfileInstrumentation(String className, Method method, int methodIndex) {
+        this.className = className;
+        this.methodName = method.getMethodName();
+        this.fingerprint = Profile.fingerprint(method);
+        this.fieldName = "$profile" + methodIndex;
+    }
+
+    /**
+     * Code that increments the given counter, which must run with an empty operand stack.
+     *
+     * @param counter
+     * @return
+     */
+    public String generateIncrement(String counter) {
+        int index = counters.indexOf(counter);
+        if (index < 0) {
+            index = counters.size();
+            counters.add(counter);
+        }
+
+        return "getstatic " + className + "/" + fieldName + " [J" + NL
+                + JasminInstruction.pushInt(index) + NL
+                + "dup2" + NL
+                + "laload" + NL
+                + "lconst_1" + NL
+                + "ladd" + NL
+                + "lastore" + NL;
+    }
+
+    /**
+     * Handler of main that writes the profile and rethrows the exception, declared with the labels of
+     * {@link #addExitHandler}.
+     */
+    public static final String EXIT_HANDLER_DIRECTIVE =
+            ".catch java/lang/Throwable from profileStart to profileEnd using profileHandler";
+
+    /**
+     * Surrounds the optimized code of main with the labels of {@link #EXIT_HANDLER_DIRECTIVE} and appends its handler,
+     * so that the profile is also written when main throws. The code must end in a return or in a throw, as the handler
+     * follows it.
+     *
+     * @param className
+     * @param code
+     * @return
+     */
+    public static List<JasminInstruction> addExitHandler(String className, List<JasminInstruction> code) {
+        var result = new ArrayList<JasminInstruction>(code.size() + 5);
+        result.add(JasminInstruction.label("profileStart"));
+        result.addAll(code);
+        result.add(JasminInstruction.label("profileEnd"));
+        result.add(JasminInstruction.label("profileHandler"));
+        result.add(JasminInstruction.of("invokestatic", className + "/" + DUMP + "()V"));
+        result.add(JasminInstruction.of("athrow"));
+        return result;
+    }
+
+    /**
+     * Code that writes the profile, to be placed before the returns of main.
+     *
+     * @param className
+     * @return
+     */
+    public static String generateDumpCall(String className) {
+        return "invokestatic " + className + "/" + DUMP + "()V" + NL;
+    }
+
+    public Counters getCounters() {
+        return new Counters(fieldName, methodName, fingerprint, List.copyOf(counters));
+    }
+
+    /**
+     * Code of the static initializer that creates the arrays of counters.
+     *
+     * @param className
+     * @param methods
+     * @return
+     */
+    public static String generateFieldInits(String className, List<Counters> methods) {
+        var code = new StringBuilder();
+
+        for (var method : methods) {
+            code.append(TAB).append(JasminInstruction.pushInt(method.names().size())).append(NL);
+            code.append(TAB).append("newarray long").append(NL);
+            code.append(TAB).append("putstatic ").append(className).append("/").append(method.fieldName())
+                    .append(" [J").append(NL);
+        }
+
+        return code.toString();
+    }
+
+    /**
+     * Generates the method that writes the fingerprint of each method and the value of each counter to the given
+     * file, one per line.
+     *
+     * @param className
+     * @param file
+     * @param methods
+     * @return
+     */
+    public static String generateDump(String className, String file, List<Counters> methods) {
+        var code = new StringBuilder();
+
+        code.append(".method private static ").append(DUMP).append("()V").append(NL);
+        code.append(TAB).append(".limit stack 3").append(NL);
+        code.append(TAB).append(".limit locals 1").append(NL);
+        code.append(TAB).append("new java/io/PrintStream").append(NL);
+        code.append(TAB).append("dup").append(NL);
+        code.append(TAB).append("ldc ").append(quote(file)).append(NL);
+        code.append(TAB).append("invokespecial java/io/PrintStream/<init>(Ljava/lang/String;)V").append(NL);
+        code.append(TAB).append("astore_0").append(NL);
+
+        for (var method : methods) {
+            code.append(TAB).append("aload_0").append(NL);
+            code.append(TAB).append("ldc ")
+                    .append(quote(method.methodName() + " " + Profile.FINGERPRINT + " " + method.fingerprint()))
+                    .append(NL);
+            code.append(TAB).append("invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V").append(NL);
+
+            for (int i = 0; i < method.names().size(); i++) {
+                code.append(TAB).append("aload_0").append(NL);
+                code.append(TAB).append("ldc ").append(quote(method.methodName() + " " + method.names().get(i) + " "))
+                        .append(NL);
+                code.append(TAB).append("invokevirtual java/io/PrintStream/print(Ljava/lang/String;)V").append(NL);
+                code.append(TAB).append("aload_0").append(NL);
+                code.append(TAB).append("getstatic ").append(className).append("/").append(method.fieldName())
+                        .append(" [J").append(NL);
+                code.append(TAB).append(JasminInstruction.pushInt(i)).append(NL);
+                code.append(TAB).append("laload").append(NL);
+                code.append(TAB).append("invokevirtual java/io/PrintStream/println(J)V").append(NL);
+            }
+        }
+
+        code.append(TAB).append("aload_0").append(NL);
+        code.append(TAB).append("invokevirtual java/io/PrintStream/close()V").append(NL);
+        code.append(TAB).append("return").append(NL);
+        code.append(".end method").append(NL).append(NL);
+
+        return code.toString();
+    }
+
+    private static String quote(String text) {
+        var literal = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            ConstantArrays.appendChar(literal, c);
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * The counters of a method.
+     *
+     * @param fieldName   static field with the values of the counters
+     * @param methodName
+     * @param fingerprint fingerprint of the code of the method
+     * @param names       name of each counter, by index in the field
+     */
+    public record Counters(String fieldName, String methodName, long fingerprint, List<String> names) {
+    }
+}
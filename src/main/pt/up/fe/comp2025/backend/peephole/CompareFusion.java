@@ -0,0 +1,95 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.JasminInstruction;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.Set;
+
+/**
+ * Fuses comparisons with the branches that test them.
+ * <p>
+ * A boolean materialized by "if&lt;c&gt; T; iconst_0; goto E; T: iconst_1; E:" and then tested with ifne/ifeq
+ * becomes a single branch, and comparisons against a zero right operand use the if&lt;c&gt; forms instead of
+ * if_icmp&lt;c&gt;. Booleans negated with "iconst_1; ixor" right before being tested use the opposite test.
+ */
+public class CompareFusion implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        return fuseMaterializedBoolean(code, index)
+                || fuseCompareWithZero(code, index)
+                || fuseNegatedTest(code, index);
+    }
+
+    private boolean fuseMaterializedBoolean(PeepholeCode code, int index) {
+        if (index + 6 >= code.size()) {
+            return false;
+        }
+
+        var branch = code.get(index);
+        var setFalse = code.get(index + 1);
+        var jumpToEnd = code.get(index + 2);
+        var trueLabel = code.get(index + 3);
+        var setTrue = code.get(index + 4);
+        var endLabel = code.get(index + 5);
+        var test = code.get(index + 6);
+
+        boolean matches = branch.isConditionalBranch()
+                && setFalse.is("iconst_0")
+                && jumpToEnd.is("goto")
+                && trueLabel.isLabel() && trueLabel.getLabel().equals(branch.getTarget())
+                && setTrue.is("iconst_1")
+                && endLabel.isLabel() && endLabel.getLabel().equals(jumpToEnd.getTarget())
+                && (test.is("ifne") || test.is("ifeq"));
+
+        if (!matches
+                || code.countReferences(trueLabel.getLabel()) != 1
+                || code.countReferences(endLabel.getLabel()) != 1) {
+            return false;
+        }
+
+        var condition = test.is("ifne") ? branch.getCondition() : JasminInstruction.negate(branch.getCondition());
+        var prefix = branch.getOpcode().substring(0, branch.getOpcode().length() - 2);
+
+        code.subList(index, index + 7).clear();
+        code.add(index, JasminInstruction.of(prefix + condition, test.getOperand()));
+        return true;
+    }
+
+    private boolean fuseCompareWithZero(PeepholeCode code, int index) {
+        if (index + 1 >= code.size()) {
+            return false;
+        }
+
+        var zero = code.get(index);
+        var branch = code.get(index + 1);
+
+        if (!zero.is("iconst_0") || !branch.isConditionalBranch() || !branch.getOpcode().startsWith("if_icmp")) {
+            return false;
+        }
+
+        code.subList(index, index + 2).clear();
+        code.add(index, JasminInstruction.of("if" + branch.getCondition(), branch.getOperand()));
+        return true;
+    }
+
+    private boolean fuseNegatedTest(PeepholeCode code, int index) {
+        if (index + 2 >= code.size()) {
+            return false;
+        }
+
+        var one = code.get(index);
+        var xor = code.get(index + 1);
+        var test = code.get(index + 2);
+
+        if (!one.is("iconst_1") || !xor.is("ixor") || !(test.is("ifne") || test.is("ifeq"))) {
+            return false;
+        }
+
+        code.subList(index, index + 3).clear();
+        code.add(index, JasminInstruction.of(test.is("ifne") ? "ifeq" : "ifne", test.getOperand()));
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.JasminInstruction;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.Set;
+
+/**
+ * Replaces integer constants with the shortest of iconst, bipush, sipush and ldc.
+ */
+public class ConstantSelection implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        var constant = code.get(index).getIntConstant();
+        if (constant.isEmpty()) {
+            return false;
+        }
+
+        var selected = JasminInstruction.pushInt(constant.getAsInt());
+        if (selected.equals(code.get(index))) {
+            return false;
+        }
+
+        code.set(index, selected);
+        return true;
+    }
+}
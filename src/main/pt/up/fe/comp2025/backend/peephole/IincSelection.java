@@ -0,0 +1,56 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.JasminInstruction;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.Set;
+
+/**
+ * Replaces "iload n; const k; iadd; istore n" (and the isub and commuted variants) with "iinc n k".
+ */
+public class IincSelection implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        if (index + 3 >= code.size()) {
+            return false;
+        }
+
+        var first = code.get(index);
+        var second = code.get(index + 1);
+        var op = code.get(index + 2);
+        var store = code.get(index + 3);
+
+        if (!store.isStore() || store.getLocalType() != 'i') {
+            return false;
+        }
+
+        int local = store.getLocal();
+        Integer increment = null;
+
+        if (isLoadOf(first, local) && second.getIntConstant().isPresent()) {
+            int value = second.getIntConstant().getAsInt();
+            if (op.is("iadd")) {
+                increment = value;
+            } else if (op.is("isub")) {
+                increment = -value;
+            }
+        } else if (first.getIntConstant().isPresent() && isLoadOf(second, local) && op.is("iadd")) {
+            increment = first.getIntConstant().getAsInt();
+        }
+
+        if (increment == null || increment < Byte.MIN_VALUE || increment > Byte.MAX_VALUE) {
+            return false;
+        }
+
+        code.subList(index, index + 4).clear();
+        code.add(index, JasminInstruction.of("iinc", local + " " + increment));
+        return true;
+    }
+
+    private static boolean isLoadOf(JasminInstruction inst, int local) {
+        return inst.isLoad() && inst.getLocalType() == 'i' && inst.getLocal() == local;
+    }
+}
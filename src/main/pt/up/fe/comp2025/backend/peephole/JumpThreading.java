@@ -0,0 +1,58 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Retargets branches that jump to a goto so that they jump directly to its final destination.
+ */
+public class JumpThreading implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        var inst = code.get(index);
+        if (!inst.isBranch()) {
+            return false;
+        }
+
+        var visited = new HashSet<String>();
+        var target = inst.getTarget();
+        visited.add(target);
+
+        String next;
+        while ((next = gotoAfter(code, target)) != null) {
+            // A cycle of gotos, leave it as it is
+            if (!visited.add(next)) {
+                return false;
+            }
+            target = next;
+        }
+
+        if (target.equals(inst.getTarget())) {
+            return false;
+        }
+
+        code.set(index, inst.withOperand(target));
+        return true;
+    }
+
+    /**
+     * @return the target of the goto that is the first instruction after the given label, or null if there is none
+     */
+    private static String gotoAfter(PeepholeCode code, String label) {
+        int i = code.indexOfLabel(label);
+        if (i < 0) {
+            return null;
+        }
+
+        while (i < code.size() && code.get(i).isLabel()) {
+            i++;
+        }
+
+        return i < code.size() && code.get(i).is("goto") ? code.get(i).getTarget() : null;
+    }
+}
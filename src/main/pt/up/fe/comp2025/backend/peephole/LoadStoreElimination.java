@@ -0,0 +1,81 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.JasminInstruction;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.Set;
+
+/**
+ * Removes a store to a temporary immediately followed by a load of it, when the temporary is not read anywhere else,
+ * and loads immediately stored back into the same local.
+ * <p>
+ * Stores to variables of the source program are kept, even when they are dead.
+ */
+public class LoadStoreElimination implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        if (index + 1 >= code.size()) {
+            return false;
+        }
+
+        var first = code.get(index);
+        var second = code.get(index + 1);
+
+        if (!sameLocal(first, second)) {
+            return false;
+        }
+
+        // xload n; xstore n
+        if (first.isLoad() && second.isStore()) {
+            code.subList(index, index + 2).clear();
+            return true;
+        }
+
+        // xstore n; xload n, with n a temporary that is dead afterwards
+        if (first.isStore() && second.isLoad()
+                && method != null && isTemporary(method, temporaries, first.getLocal())
+                && countReads(code, first.getLocal()) == 1) {
+            code.subList(index, index + 2).clear();
+            return true;
+        }
+
+        return false;
+    }
+
+    private static boolean sameLocal(JasminInstruction first, JasminInstruction second) {
+        return (first.isLoad() || first.isStore())
+                && (second.isLoad() || second.isStore())
+                && first.getLocalType() == second.getLocalType()
+                && first.getLocal() == second.getLocal();
+    }
+
+    /**
+     * @return true if all variables assigned to the given local are temporaries created by the compiler
+     */
+    private static boolean isTemporary(Method method, Set<String> temporaries, int local) {
+        boolean found = false;
+        for (var entry : method.getVarTable().entrySet()) {
+            if (entry.getValue().getVirtualReg() != local) {
+                continue;
+            }
+            if (!temporaries.contains(entry.getKey())) {
+                return false;
+            }
+            found = true;
+        }
+        return found;
+    }
+
+    private static int countReads(PeepholeCode code, int local) {
+        int count = 0;
+        for (var inst : code) {
+            if ((inst.isLoad() || inst.is("iinc")) && inst.getLocal() == local) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
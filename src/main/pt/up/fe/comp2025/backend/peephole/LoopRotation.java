@@ -0,0 +1,92 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.JasminInstruction;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rotates top-tested loops into bottom-tested ones.
+ * <p>
+ * A while loop is generated as a header that tests the condition ({@code H: ...; if<c> B; goto E}) followed by the
+ * body, which ends with {@code goto H}. The backward goto is replaced by a copy of the header, so each iteration runs a
+ * single conditional branch back to the body. The original header is still executed once, as the entry guard.
+ */
+public class LoopRotation implements PeepholeRule {
+
+    /**
+     * Headers longer than this are not copied, to keep code growth small.
+     */
+    private static final int MAX_HEADER_SIZE = 8;
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        var inst = code.get(index);
+        if (!inst.is("goto")) {
+            return false;
+        }
+
+        int start = code.indexOfLabel(inst.getTarget());
+
+        // Only backward jumps close a loop
+        if (start < 0 || start > index) {
+            return false;
+        }
+
+        while (start < code.size() && code.get(start).isLabel()) {
+            start++;
+        }
+
+        var header = getHeader(code, start);
+        if (header == null) {
+            return false;
+        }
+
+        // The copy ends with a jump to the loop exit, which must be forward so that it is never rotated again
+        int exit = code.indexOfLabel(header.getLast().getTarget());
+        if (exit <= index) {
+            return false;
+        }
+
+        code.remove(index);
+        code.addAll(index, header);
+        return true;
+    }
+
+    /**
+     * @return the straight-line code starting at the given position if it ends with a conditional branch followed by a
+     * goto, or null otherwise
+     */
+    private static List<JasminInstruction> getHeader(PeepholeCode code, int start) {
+        var header = new ArrayList<JasminInstruction>();
+
+        for (int i = start; i < code.size() && header.size() <= MAX_HEADER_SIZE; i++) {
+            var inst = code.get(i);
+
+            if (inst.isLabel()) {
+                return null;
+            }
+
+            header.add(inst);
+
+            if (inst.isConditionalBranch()) {
+                boolean endsWithGoto = i + 1 < code.size() && code.get(i + 1).is("goto");
+                if (!endsWithGoto) {
+                    return null;
+                }
+                header.add(code.get(i + 1));
+                return header;
+            }
+
+            if (inst.isBranch() || inst.isUnconditionalExit()) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.Set;
+
+/**
+ * Removes gotos that jump to the instruction right after them.
+ */
+public class RedundantGoto implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        var inst = code.get(index);
+        if (!inst.is("goto") || !isLabelAfter(code, index, inst.getTarget())) {
+            return false;
+        }
+
+        code.remove(index);
+        return true;
+    }
+
+    /**
+     * @return true if the given label is placed right after the instruction at the given position
+     */
+    private static boolean isLabelAfter(PeepholeCode code, int index, String label) {
+        for (int i = index + 1; i < code.size() && code.get(i).isLabel(); i++) {
+            if (code.get(i).getLabel().equals(label)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
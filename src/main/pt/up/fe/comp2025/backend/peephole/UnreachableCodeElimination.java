@@ -0,0 +1,32 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.Set;
+
+/**
+ * Removes the instructions between an unconditional jump or return and the next label, since they cannot be reached.
+ */
+public class UnreachableCodeElimination implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        if (!code.get(index).isUnconditionalExit()) {
+            return false;
+        }
+
+        int end = index + 1;
+        while (end < code.size() && !code.get(end).isLabel()) {
+            end++;
+        }
+
+        if (end == index + 1) {
+            return false;
+        }
+
+        code.subList(index + 1, end).clear();
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package pt.up.fe.comp2025.backend.peephole;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2025.backend.PeepholeCode;
+import pt.up.fe.comp2025.backend.PeepholeRule;
+
+import java.util.Set;
+
+/**
+ * Removes labels that no branch jumps to, so that they do not split patterns of the other rules.
+ */
+public class UnusedLabelElimination implements PeepholeRule {
+
+    @Override
+    public boolean apply(PeepholeCode code, int index, Method method, Set<String> temporaries) {
+        var inst = code.get(index);
+        if (!inst.isLabel() || code.countReferences(inst.getLabel()) > 0) {
+            return false;
+        }
+
+        code.remove(index);
+        return true;
+    }
+}
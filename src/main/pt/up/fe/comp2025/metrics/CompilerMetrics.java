@@ -0,0 +1,224 @@
+package pt.up.fe.comp2025.metrics;
+
+import com.google.gson.GsonBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the time and memory spent by each stage and pass of a compilation.
+ * <p>
+ * Metrics are only collected between {@link #start()} and {@link #finish()}, on the thread that started them or on
+ * threads working for it (see {@link #collectInto(CompilerMetrics, Supplier)}). The stages measure their work with
+ * {@link #measure(String)}, which costs nothing when no collection is active. Scopes can be nested, a measurement
+ * includes the cost of the scopes inside it.
+ * <p>
+ * Times and allocations come from the ThreadMXBean of the JVM and only count the work of the current thread.
+ * <p>
+ * Each scope is also reported to Flight Recorder as a {@link CompilerPhaseEvent}, independently of this collection.
+ */
+public class CompilerMetrics {
+
+    private static final ThreadLocal<CompilerMetrics> CURRENT = new ThreadLocal<>();
+
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final Scope DISABLED = new Scope(null, null, null, null);
+
+    // Other threads can add measurements, see collectInto
+    private final List<Measurement> measurements = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Starts collecting metrics in the current thread, discarding any previous collection.
+     *
+     * @return
+     */
+    public static CompilerMetrics start() {
+        var metrics = new CompilerMetrics();
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    /**
+     * Stops collecting metrics in the current thread.
+     *
+     * @return the metrics collected since {@link #start()}
+     */
+    public static Optional<CompilerMetrics> finish() {
+        var metrics = CURRENT.get();
+        CURRENT.remove();
+        return Optional.ofNullable(metrics);
+    }
+
+    /**
+     * @return the metrics being collected in the current thread, if any
+     */
+    public static Optional<CompilerMetrics> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Runs work done on behalf of a compilation in another thread, collecting its measurements into the metrics of
+     * that compilation. Any collection active in the current thread is restored afterwards.
+     *
+     * @param metrics
+     * @param work
+     * @return the result of the work
+     */
+    public static <T> T collectInto(CompilerMetrics metrics, Supplier<T> work) {
+        var previous = CURRENT.get();
+        CURRENT.set(metrics);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static Scope measure(String name) {
+        return measure(name, null);
+    }
+
+    /**
+     * Starts measuring a stage or pass, which ends when the returned scope is closed.
+     *
+     * @param name
+     * @param method the method being processed, or null
+     * @return
+     */
+    public static Scope measure(String name, String method) {
+        var metrics = CURRENT.get();
+        var event = new CompilerPhaseEvent();
+        if (metrics == null && !event.isEnabled()) {
+            return DISABLED;
+        }
+        return new Scope(metrics, event.isEnabled() ? event : null, name, method);
+    }
+
+    /**
+     * @return the measurements, in the order their scopes were closed
+     */
+    public List<Measurement> getMeasurements() {
+        synchronized (measurements) {
+            return List.copyOf(measurements);
+        }
+    }
+
+    /**
+     * @param name
+     * @return the measurements with the given name
+     */
+    public List<Measurement> getMeasurements(String name) {
+        return getMeasurements().stream()
+                .filter(measurement -> measurement.name().equals(name))
+                .toList();
+    }
+
+    public String toJson() {
+        return new GsonBuilder()
+                .serializeNulls()
+                .setPrettyPrinting()
+                .create()
+                .toJson(Map.of("measurements", getMeasurements()));
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static long difference(long start, long end) {
+        return start < 0 || end < 0 ? -1 : end - start;
+    }
+
+    /**
+     * A stage or pass being measured.
+     */
+    public static class Scope implements AutoCloseable {
+
+        private final CompilerMetrics metrics;
+        private final CompilerPhaseEvent event;
+        private final String name;
+        private final String method;
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+
+        private final long startWall;
+        private final long startCpu;
+        private final long startAllocated;
+
+        private Scope(CompilerMetrics metrics, CompilerPhaseEvent event, String name, String method) {
+            this.metrics = metrics;
+            this.event = event;
+            this.name = name;
+            this.method = method;
+
+            boolean collecting = metrics != null;
+            startWall = collecting ? System.nanoTime() : 0;
+            startCpu = collecting ? cpuTime() : 0;
+            startAllocated = collecting ? allocatedBytes() : 0;
+
+            if (event != null) {
+                event.begin();
+            }
+        }
+
+        /**
+         * @return true if the measurement will be recorded, can be used to skip computing counts
+         */
+        public boolean isEnabled() {
+            return metrics != null || event != null;
+        }
+
+        /**
+         * Records a size of what was processed, replacing any previous value with the same name.
+         *
+         * @param count
+         * @param value
+         */
+        public void count(String count, long value) {
+            if (isEnabled()) {
+                counts.put(count, value);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (event != null && event.shouldCommit()) {
+                event.phase = name;
+                event.method = method;
+                event.counts = counts.entrySet().stream()
+                        .map(count -> count.getKey() + "=" + count.getValue())
+                        .collect(Collectors.joining(" "));
+                event.commit();
+            }
+
+            if (metrics == null) {
+                return;
+            }
+
+            long wall = System.nanoTime() - startWall;
+            long cpu = difference(startCpu, cpuTime());
+            long allocated = difference(startAllocated, allocatedBytes());
+
+            metrics.measurements.add(new Measurement(name, method, wall, cpu, allocated,
+                    Collections.unmodifiableMap(new LinkedHashMap<>(counts))));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package pt.up.fe.comp2025.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for each scope measured with {@link CompilerMetrics#measure(String, String)}, so that
+ * the stages and passes of the compiler show up by name in JFR recordings.
+ * <p>
+ * Events are emitted whether or not metrics are being collected, but only cost something while a recording that
+ * enables them is running.
+ */
+@Name(CompilerPhaseEvent.NAME)
+@Label("J-- Compiler Phase")
+@Category("J-- Compiler")
+@Description("A stage or pass of the J-- compiler")
+@StackTrace(false)
+public class CompilerPhaseEvent extends Event {
+
+    public static final String NAME = "pt.up.fe.comp2025.CompilerPhase";
+
+    @Label("Phase")
+    @Description("The stage, followed by the pass if any")
+    String phase;
+
+    @Label("Method")
+    @Description("The method being compiled, if the phase works per method")
+    String method;
+
+    @Label("Counts")
+    @Description("Sizes of what was processed, such as nodes or instructions")
+    String counts;
+}
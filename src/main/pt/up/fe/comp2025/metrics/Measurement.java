@@ -0,0 +1,17 @@
+package pt.up.fe.comp2025.metrics;
+
+import java.util.Map;
+
+/**
+ * The cost of running a stage or pass of the compiler once.
+ *
+ * @param name           the stage, followed by the pass if any (e.g., "optimization/registerAllocation")
+ * @param method         the method the measurement applies to, or null if it applies to the whole class
+ * @param wallNanos      elapsed time
+ * @param cpuNanos       CPU time of the compiling thread, or -1 if not supported by the JVM
+ * @param allocatedBytes bytes allocated by the compiling thread, or -1 if not supported by the JVM
+ * @param counts         sizes of what was processed, such as nodes or instructions
+ */
+public record Measurement(String name, String method, long wallNanos, long cpuNanos, long allocatedBytes,
+                          Map<String, Long> counts) {
+}
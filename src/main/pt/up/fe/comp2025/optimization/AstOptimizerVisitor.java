@@ -1,15 +1,15 @@
 package pt.up.fe.comp2025.optimization;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.KindPreorderVisitor;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class AstOptimizerVisitor extends PreorderJmmVisitor<Void, Void> {
+public class AstOptimizerVisitor extends KindPreorderVisitor<Void, Void> {
 
     private final Map<String, String> constants = new HashMap<>();
     private boolean optimized = false;
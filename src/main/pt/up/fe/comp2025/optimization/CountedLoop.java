@@ -0,0 +1,180 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A counted loop in the OLLIR code of a method, with one instruction or label per line.
+ * <p>
+ * J-- only has while loops, and counted loops are generated as:
+ * <pre>
+ * cond:
+ * if (i.i32 &lt;.bool n.i32) goto body;
+ * goto end;
+ * body:
+ * ...
+ * tmp.i32 :=.i32 i.i32 +.i32 c.i32;
+ * i.i32 :=.i32 tmp.i32;
+ * goto cond;
+ * end:
+ * </pre>
+ * A loop is recognized if its body has no other jumps or labels, the increment c is a positive constant, and neither
+ * the counter i nor the bound n are written anywhere else in the body. The condition can also use '&lt;=', the bound
+ * can be a constant, and the increment can also be a single instruction, 'i.i32 :=.i32 i.i32 +.i32 c.i32'.
+ *
+ * @param start         index of the label of the condition
+ * @param end           index after the label of the end of the loop
+ * @param condLabel
+ * @param bodyLabel
+ * @param counter       name of the induction variable
+ * @param bound         name of the variable, or constant, the counter is compared with
+ * @param inclusive     if the comparison is '&lt;='
+ * @param increment
+ * @param incrementSize number of instructions of the increment, at the end of the body
+ * @param body          instructions of the body, including the increment
+ */
+record CountedLoop(int start, int end, String condLabel, String bodyLabel, String counter, String bound,
+                   boolean inclusive, long increment, int incrementSize, List<String> body) {
+
+    static final Pattern LABEL = Pattern.compile("(\\w+):");
+    static final Pattern ASSIGN = Pattern.compile("(\\w+)\\.\\S+ :=.*");
+
+    private static final Pattern CONDITION = Pattern.compile(
+            "if \\((\\w+)\\.i32 (<|<=)\\.bool (\\w+)\\.i32\\) goto (\\w+);");
+    private static final Pattern GOTO = Pattern.compile("goto (\\w+);");
+    private static final Pattern CONSTANT = Pattern.compile("-?\\d+");
+
+    /**
+     * @return the counted loop that starts at the given line, or null if there is none
+     */
+    static CountedLoop match(List<String> lines, int start) {
+        if (start + 3 >= lines.size()) {
+            return null;
+        }
+
+        var condLabel = LABEL.matcher(lines.get(start));
+        var condition = CONDITION.matcher(lines.get(start + 1));
+        var exit = GOTO.matcher(lines.get(start + 2));
+        if (!condLabel.matches() || !condition.matches() || !exit.matches()
+                || !lines.get(start + 3).equals(condition.group(4) + ":")) {
+            return null;
+        }
+
+        // The body is straight-line code, up to the jump back to the condition
+        int bodyStart = start + 4;
+        int jump = bodyStart;
+        while (jump < lines.size() && !isControlFlow(lines.get(jump))) {
+            jump++;
+        }
+
+        if (jump + 1 >= lines.size()
+                || !lines.get(jump).equals("goto " + condLabel.group(1) + ";")
+                || !lines.get(jump + 1).equals(exit.group(1) + ":")) {
+            return null;
+        }
+
+        var counter = condition.group(1);
+        var bound = condition.group(3);
+        var body = lines.subList(bodyStart, jump);
+
+        var increment = matchIncrement(body, counter);
+        if (increment == null || increment.value() <= 0) {
+            return null;
+        }
+
+        // Only the increment may write the counter, and nothing may write the bound
+        for (int i = 0; i < body.size() - increment.size(); i++) {
+            if (isAssigned(body.get(i), counter) || isAssigned(body.get(i), bound)) {
+                return null;
+            }
+        }
+
+        return new CountedLoop(start, jump + 2, condLabel.group(1), condition.group(4), counter, bound,
+                condition.group(2).equals("<="), increment.value(), increment.size(), List.copyOf(body));
+    }
+
+    /**
+     * @return the increment at the end of the body, or null if there is none
+     */
+    private static Increment matchIncrement(List<String> body, String counter) {
+        if (body.isEmpty()) {
+            return null;
+        }
+
+        var last = body.get(body.size() - 1);
+        var add = matchAdd(last, counter, counter);
+        if (add != null) {
+            return new Increment(1, Long.parseLong(add.group(1)));
+        }
+
+        var copy = Pattern.compile(Pattern.quote(counter) + "\\.i32 :=\\.i32 (\\w+)\\.i32;").matcher(last);
+        if (body.size() < 2 || !copy.matches()) {
+            return null;
+        }
+
+        add = matchAdd(body.get(body.size() - 2), copy.group(1), counter);
+        return add != null ? new Increment(2, Long.parseLong(add.group(1))) : null;
+    }
+
+    /**
+     * @return the match of 'dest := counter + constant', or null
+     */
+    private static Matcher matchAdd(String line, String dest, String counter) {
+        var add = Pattern.compile(Pattern.quote(dest) + "\\.i32 :=\\.i32 " + Pattern.quote(counter)
+                + "\\.i32 \\+\\.i32 (-?\\d+)\\.i32;").matcher(line);
+        return add.matches() ? add : null;
+    }
+
+    /**
+     * @return the constant the variable is set to by the straight-line code at the end of the given code, or null
+     */
+    static String findInit(String variable, List<String> code) {
+        var init = Pattern.compile(Pattern.quote(variable) + "\\.i32 :=\\.i32 (-?\\d+)\\.i32;");
+
+        for (int i = code.size() - 1; i >= 0 && !isControlFlow(code.get(i)); i--) {
+            if (isAssigned(code.get(i), variable)) {
+                var constant = init.matcher(code.get(i));
+                return constant.matches() ? constant.group(1) : null;
+            }
+        }
+
+        return null;
+    }
+
+    static boolean isControlFlow(String line) {
+        return LABEL.matcher(line).matches() || line.contains("goto ") || line.startsWith("ret.");
+    }
+
+    /**
+     * @return true if the instruction writes the given variable
+     */
+    static boolean isAssigned(String line, String variable) {
+        var assign = ASSIGN.matcher(line);
+        return assign.matches() && assign.group(1).equals(variable);
+    }
+
+    static boolean isConstant(String operand) {
+        return CONSTANT.matcher(operand).matches();
+    }
+
+    boolean hasConstantBound() {
+        return isConstant(bound);
+    }
+
+    /**
+     * @return the body without the increment of the counter
+     */
+    List<String> bodyWithoutIncrement() {
+        return body.subList(0, body.size() - incrementSize);
+    }
+
+    /**
+     * Either 'i := i + c' or 'tmp := i + c; i := tmp'.
+     *
+     * @param size  number of instructions
+     * @param value
+     */
+    private record Increment(int size, long value) {
+    }
+}
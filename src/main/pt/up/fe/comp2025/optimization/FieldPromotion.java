@@ -0,0 +1,185 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Promotion of the fields of 'this' to locals, inside a method.
+ * <p>
+ * Each promoted field is loaded into a local once, at the start of the method, and every getfield and putfield of the
+ * field becomes a copy from or to that local. Since any call may reach code that reads or writes the fields, through
+ * 'this' or through another reference to the same object, the fields written by the method are stored back before
+ * each call and every promoted field is loaded again after it. Written fields are also stored back before each return.
+ * A field is only promoted if, with loops weighted by {@link OptUtils#LOOP_WEIGHT}, this takes fewer field accesses
+ * than the original code.
+ * <p>
+ * Runs before the loop optimizations, whose patterns only match locals, so loops whose counter or bound was a field
+ * can also be reduced and unrolled.
+ */
+public class FieldPromotion {
+
+    /**
+     * Prefix of the locals that hold the fields.
+     */
+    private static final String PREFIX = "field_";
+
+    private static final Pattern GETFIELD = Pattern.compile(
+            "(\\S+) :=(\\.\\S+) getfield\\(this, (\\w+)(\\.[^)]+)\\)\\.\\S+;");
+    private static final Pattern PUTFIELD = Pattern.compile(
+            "putfield\\(this, (\\w+)(\\.[^,]+), (.+)\\)\\.\\S+;");
+    private static final Pattern LABEL = Pattern.compile("(\\w+):");
+    private static final Pattern GOTO = Pattern.compile(".*goto (\\w+);");
+
+    /**
+     * @param body OLLIR code of the body of an instance method
+     * @return the code with the profitable fields promoted to locals
+     */
+    public static String promote(String body) {
+        var lines = OptUtils.getLines(body);
+        var weights = getWeights(lines);
+
+        // Field accesses, barriers and returns, weighted by the loops they are in
+        Map<String, String> types = new LinkedHashMap<>();
+        Map<String, Long> accesses = new HashMap<>();
+        Set<String> written = new LinkedHashSet<>();
+        long barriers = 0;
+        long returns = 0;
+
+        for (int i = 0; i < lines.size(); i++) {
+            var line = lines.get(i);
+            var get = GETFIELD.matcher(line);
+            var put = PUTFIELD.matcher(line);
+
+            if (get.matches()) {
+                types.putIfAbsent(get.group(3), get.group(4));
+                accesses.merge(get.group(3), weights[i], Long::sum);
+            } else if (put.matches()) {
+                types.putIfAbsent(put.group(1), put.group(2));
+                accesses.merge(put.group(1), weights[i], Long::sum);
+                written.add(put.group(1));
+            } else if (isBarrier(line)) {
+                barriers += weights[i];
+            } else if (line.startsWith("ret.")) {
+                returns += weights[i];
+            }
+        }
+
+        // A promoted field costs a load at the start and after each barrier, and a store before each barrier and
+        // return if it is written
+        Map<String, String> promoted = new LinkedHashMap<>();
+        for (var field : types.keySet()) {
+            long cost = 1 + barriers;
+            if (written.contains(field)) {
+                cost += barriers + returns;
+            }
+
+            if (cost < accesses.get(field)) {
+                promoted.put(field, types.get(field));
+            }
+        }
+
+        if (promoted.isEmpty()) {
+            return body;
+        }
+
+        var dirty = new ArrayList<>(written);
+        dirty.retainAll(promoted.keySet());
+
+        Map<String, String> locals = new HashMap<>();
+        for (var field : promoted.keySet()) {
+            locals.put(field, OptUtils.getUnusedName(PREFIX + field, lines));
+        }
+
+        var code = new StringBuilder();
+        appendLoads(code, promoted, locals);
+
+        for (var line : lines) {
+            var get = GETFIELD.matcher(line);
+            var put = PUTFIELD.matcher(line);
+
+            if (get.matches() && promoted.containsKey(get.group(3))) {
+                code.append(get.group(1)).append(" :=").append(get.group(2)).append(" ")
+                        .append(locals.get(get.group(3))).append(get.group(4)).append(";\n");
+            } else if (put.matches() && promoted.containsKey(put.group(1))) {
+                var type = put.group(2);
+                code.append(locals.get(put.group(1))).append(type).append(" :=").append(type).append(" ")
+                        .append(put.group(3)).append(";\n");
+            } else if (isBarrier(line)) {
+                appendStores(code, promoted, locals, dirty);
+                code.append(line).append("\n");
+                appendLoads(code, promoted, locals);
+            } else if (line.startsWith("ret.")) {
+                appendStores(code, promoted, locals, dirty);
+                code.append(line).append("\n");
+            } else {
+                code.append(line).append("\n");
+            }
+        }
+
+        return code.toString();
+    }
+
+    /**
+     * Calls that may access the fields. Constructors of new objects cannot reach the fields of 'this'.
+     */
+    private static boolean isBarrier(String line) {
+        return (line.contains("invokevirtual(") || line.contains("invokestatic(") || line.contains("invokespecial("))
+                && !line.contains("\"<init>\"");
+    }
+
+    private static void appendLoads(StringBuilder code, Map<String, String> promoted, Map<String, String> locals) {
+        promoted.forEach((field, type) -> code.append(locals.get(field)).append(type)
+                .append(" :=").append(type).append(" getfield(this, ").append(field).append(type).append(")")
+                .append(type).append(";\n"));
+    }
+
+    private static void appendStores(StringBuilder code, Map<String, String> promoted, Map<String, String> locals,
+                                     List<String> dirty) {
+        for (var field : dirty) {
+            var type = promoted.get(field);
+            code.append("putfield(this, ").append(field).append(type).append(", ")
+                    .append(locals.get(field)).append(type).append(")").append(type).append(";\n");
+        }
+    }
+
+    /**
+     * A backward goto closes a loop that starts at its label, and each loop multiplies the weight of its lines.
+     *
+     * @return the weight of each line
+     */
+    private static long[] getWeights(List<String> lines) {
+        Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            var label = LABEL.matcher(lines.get(i));
+            if (label.matches()) {
+                labels.put(label.group(1), i);
+            }
+        }
+
+        var weights = new long[lines.size()];
+        Arrays.fill(weights, 1);
+        for (int i = 0; i < lines.size(); i++) {
+            var jump = GOTO.matcher(lines.get(i));
+            if (!jump.matches()) {
+                continue;
+            }
+
+            var target = labels.get(jump.group(1));
+            if (target != null && target <= i) {
+                for (int j = target; j <= i; j++) {
+                    // Saturates, deeply nested loops are all just hot
+                    weights[j] = Math.min(weights[j] * OptUtils.LOOP_WEIGHT, Long.MAX_VALUE / OptUtils.LOOP_WEIGHT);
+                }
+            }
+        }
+
+        return weights;
+    }
+}
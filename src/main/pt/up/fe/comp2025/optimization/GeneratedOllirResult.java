@@ -0,0 +1,32 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * OLLIR code generated from the AST, which also knows which of its variables are temporaries of the generator.
+ * <p>
+ * OLLIR read from elsewhere has no such information, so the backend treats all its variables as program variables.
+ */
+public class GeneratedOllirResult extends OllirResult {
+
+    private final Set<String> temporaries;
+
+    public GeneratedOllirResult(JmmSemanticsResult semanticsResult, String ollirCode, List<Report> reports,
+                                Set<String> temporaries) {
+        super(semanticsResult, ollirCode, reports);
+        this.temporaries = Set.copyOf(temporaries);
+    }
+
+    /**
+     * @param ollirResult
+     * @return the names of the temporaries of the code, or an empty set if they are not known
+     */
+    public static Set<String> getTemporaries(OllirResult ollirResult) {
+        return ollirResult instanceof GeneratedOllirResult generated ? generated.temporaries : Set.of();
+    }
+}
@@ -1,11 +1,15 @@
 package pt.up.fe.comp2025.optimization;
 
-import org.specs.comp.ollir.Method;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp2025.CompilerConfig;
 import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.ast.CompactAst;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.backend.Profile;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.utils.ParallelUtils;
 
 import java.util.Collections;
 
@@ -15,11 +19,21 @@ public class JmmOptimizationImpl implements JmmOptimization {
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
         System.out.println(semanticsResult.getRootNode().toTree());
 
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
-        var result    = new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        OllirResult result;
+        try (var scope = CompilerMetrics.measure("ollir")) {
+            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), semanticsResult.getConfig());
+            var ollirCode = visitor.visit(semanticsResult.getRootNode());
+            result = new GeneratedOllirResult(semanticsResult, ollirCode, Collections.emptyList(),
+                    visitor.getTemporaries());
+
+            if (scope.isEnabled()) {
+                scope.count("instructions", result.getOllirClass().getMethods().stream()
+                        .mapToInt(method -> method.getInstructions().size())
+                        .sum());
+            }
+        }
 
-        System.out.println("\nOLLIR:\n\n" + ollirCode);
+        System.out.println("\nOLLIR:\n\n" + result.getOllirCode());
         result = optimize(result);
 
         return result;
@@ -30,13 +44,27 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
         if (CompilerConfig.getOptimize(semanticsResult.getConfig())) {
             var optimizer = new AstOptimizerVisitor();
+            var root = semanticsResult.getRootNode();
+            var classDecl = root.getChildren(Kind.CLASS_DECL.getNodeName()).get(0);
+            var folder = new PureCallFolder(classDecl, semanticsResult.getSymbolTable());
 
+            int iteration = 0;
+            int folded;
             do {
-                optimizer.resetOptimized();
-                optimizer.visit(semanticsResult.getRootNode());
+                // Each iteration is measured on its own, to see how many are needed and what each one costs
+                try (var scope = CompilerMetrics.measure("optimization/astOptimizer")) {
+                    optimizer.resetOptimized();
+                    optimizer.visit(semanticsResult.getRootNode());
+                    folded = folder.fold();
+
+                    scope.count("iteration", iteration++);
+                    scope.count("foldedCalls", folded);
+                    if (scope.isEnabled()) {
+                        scope.count("nodes", CompactAst.countNodes(semanticsResult.getRootNode()));
+                    }
+                }
                 System.out.println("optimized ast:\n" + semanticsResult.getRootNode().toTree());
-
-            } while (optimizer.hasOptimized());
+            } while (optimizer.hasOptimized() || folded > 0);
         }
         return semanticsResult;
     }
@@ -51,9 +79,28 @@ public class JmmOptimizationImpl implements JmmOptimization {
         }
 
         int maxRegs = Integer.parseInt(config.get(ConfigOptions.getRegister()));
-        for (Method method : ollirResult.getOllirClass().getMethods()) {
-            var allocation = RegisterAllocator.allocate(method, maxRegs);
-            allocation.forEach((varName, reg) -> {
+        int linearScanThreshold = CompilerConfig.getLinearScanThreshold(config);
+        var methods = ollirResult.getOllirClass().getMethods();
+        var profile = CompilerConfig.getProfileInput(config).map(Profile::read).orElse(null);
+
+        // Allocation only reads the method, so methods can be allocated in parallel, the registers are set and the
+        // reports printed afterwards, in the order of the methods
+        var allocations = ParallelUtils.map(methods, CompilerConfig.getThreads(config), method -> {
+            try (var scope = CompilerMetrics.measure("optimization/registerAllocation", method.getMethodName())) {
+                var counts = profile != null ? profile.getInstructionCounts(method) : null;
+                var allocation = RegisterAllocator.allocate(method, maxRegs, linearScanThreshold, counts);
+                scope.count("variables", allocation.registers().size());
+                scope.count("registers", allocation.registers().values().stream().distinct().count());
+                return allocation;
+            }
+        });
+
+        for (int i = 0; i < methods.size(); i++) {
+            var method = methods.get(i);
+            var allocation = allocations.get(i);
+
+            System.out.println(allocation.report());
+            allocation.registers().forEach((varName, reg) -> {
                 var descriptor = method.getVarTable().get(varName);
                 if (descriptor != null) {
                     descriptor.setVirtualReg(reg);
@@ -0,0 +1,125 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unrolling of counted loops.
+ * <p>
+ * Applies to the loops recognized by {@link CountedLoop}. If the counter is set to a constant right before the loop
+ * and the bound is a constant, the number of iterations is known, and if the copies of the body take at most
+ * {@link #MAX_FULL_UNROLL_SIZE} instructions the loop is replaced by them. Otherwise, an unrolled loop that runs the
+ * body a given number of times per iteration is placed before the original loop, which runs the remaining iterations.
+ * <p>
+ * Runs last, so the copies of the body already have their fields promoted and their derived induction variables
+ * reduced.
+ */
+public class LoopUnroller {
+
+    /**
+     * Maximum number of instructions of a fully unrolled loop.
+     */
+    public static final int MAX_FULL_UNROLL_SIZE = 64;
+
+    /**
+     * @param body   OLLIR code of the body of a method
+     * @param factor number of copies of the body in each iteration of unrolled loops
+     * @return the code with the counted loops unrolled
+     */
+    public static String unroll(String body, int factor) {
+        var lines = OptUtils.getLines(body);
+        var code = new ArrayList<String>();
+
+        int i = 0;
+        while (i < lines.size()) {
+            var loop = CountedLoop.match(lines, i);
+            if (loop == null) {
+                code.add(lines.get(i++));
+                continue;
+            }
+
+            if (!fullyUnroll(loop, code) && !unroll(loop, factor, lines, code)) {
+                code.addAll(lines.subList(i, loop.end()));
+            }
+            i = loop.end();
+        }
+
+        return OptUtils.joinLines(code);
+    }
+
+    /**
+     * Replaces the loop by copies of its body, if the straight-line code before it sets the counter to a constant and
+     * the bound is a constant.
+     *
+     * @return true if the loop was unrolled
+     */
+    private static boolean fullyUnroll(CountedLoop loop, List<String> code) {
+        if (!loop.hasConstantBound()) {
+            return false;
+        }
+
+        var init = CountedLoop.findInit(loop.counter(), code);
+        if (init == null) {
+            return false;
+        }
+
+        // With '<=', a bound equal to the maximum integer never ends the loop
+        if (loop.inclusive() && Long.parseLong(loop.bound()) == Integer.MAX_VALUE) {
+            return false;
+        }
+
+        long start = Long.parseLong(init);
+        long bound = Long.parseLong(loop.bound()) + (loop.inclusive() ? 1 : 0);
+        long trips = start < bound ? (bound - start + loop.increment() - 1) / loop.increment() : 0;
+        if (trips * loop.body().size() > MAX_FULL_UNROLL_SIZE) {
+            return false;
+        }
+
+        for (int i = 0; i < trips; i++) {
+            code.addAll(loop.body());
+        }
+        return true;
+    }
+
+    /**
+     * Adds an unrolled loop that runs while the counter is at least factor - 1 increments away from the bound, followed
+     * by the original loop.
+     *
+     * @return true if the loop was unrolled
+     */
+    private static boolean unroll(CountedLoop loop, int factor, List<String> lines, List<String> code) {
+        long distance = (long) (factor - 1) * loop.increment();
+        var condLabel = loop.condLabel() + "_unrolled";
+        var bodyLabel = loop.bodyLabel() + "_unrolled";
+        var op = loop.inclusive() ? "<=" : "<";
+
+        String limit;
+        if (loop.hasConstantBound()) {
+            long value = Long.parseLong(loop.bound()) - distance;
+            if (value < Integer.MIN_VALUE) {
+                return false;
+            }
+            limit = value + ".i32";
+        } else {
+            // The subtraction only wraps around for bounds close to the minimum integer, then the unrolled loop is
+            // skipped
+            limit = OptUtils.getUnusedName("limit_" + loop.condLabel(), lines) + ".i32";
+            var bound = loop.bound() + ".i32";
+            code.add(limit + " :=.i32 " + bound + " -.i32 " + distance + ".i32;");
+            code.add("if (" + limit + " <.bool " + bound + ") goto " + condLabel + ";");
+            code.add("goto " + loop.condLabel() + ";");
+        }
+
+        code.add(condLabel + ":");
+        code.add("if (" + loop.counter() + ".i32 " + op + ".bool " + limit + ") goto " + bodyLabel + ";");
+        code.add("goto " + loop.condLabel() + ";");
+        code.add(bodyLabel + ":");
+        for (int i = 0; i < factor; i++) {
+            code.addAll(loop.body());
+        }
+        code.add("goto " + condLabel + ";");
+
+        code.addAll(lines.subList(loop.start(), loop.end()));
+        return true;
+    }
+}
@@ -3,7 +3,8 @@ package pt.up.fe.comp2025.optimization;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.KindPreorderVisitor;
 import pt.up.fe.comp2025.ast.TypeUtils;
 
 import java.util.ArrayList;
@@ -13,7 +14,7 @@ import java.util.List;
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends KindPreorderVisitor<Void, OllirExprResult> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -24,9 +25,20 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private final SymbolTable table;
 
     public OllirExprGeneratorVisitor(SymbolTable table) {
+        this(table, new OptUtils(table));
+    }
+
+    /**
+     * Creates a visitor that shares the given OptUtils, so that temporaries and labels are unique across the code
+     * generated for statements and expressions.
+     *
+     * @param table
+     * @param ollirTypes
+     */
+    public OllirExprGeneratorVisitor(SymbolTable table, OptUtils ollirTypes) {
         this.table      = table;
         this.types = new TypeUtils(table);
-        this.ollirTypes = new OptUtils(types);
+        this.ollirTypes = ollirTypes;
         setDefaultValue(() -> OllirExprResult.EMPTY);
         buildVisitor();
     }
@@ -44,6 +56,8 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         addVisit("And",    this::visitBinExpr);
         addVisit("Or",     this::visitBinExpr);
 
+        addVisit("Not", this::visitNot);
+
         addVisit("Length", this::visitLength);
         addVisit("Parenthesis", this::visitParenthesis);
 
@@ -52,6 +66,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         addVisit("ArrayLiteral", this::visitArrayLiteral);
         addVisit("ArrayAccess", this::visitArrayAccess);
         addVisit("NewObject", this::visitNewObject);
+        addVisit("This", this::visitThis);
         addVisit("MethodCall", this::visitMethodCall);
 
         // Boolean literal
@@ -62,6 +77,10 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         setDefaultVisit(this::defaultVisit);
     }
 
+    private OllirExprResult visitThis(JmmNode node, Void unused) {
+        return new OllirExprResult("this." + table.getClassName());
+    }
+
     private OllirExprResult visitNewObject(JmmNode node, Void unused) {
         String className = node.get("name");
         String temp      = ollirTypes.nextTemp();
@@ -208,6 +227,68 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         return new OllirExprResult(tmp + "." + ollirType, computation);
     }
 
+    private OllirExprResult visitNot(JmmNode node, Void unused) {
+        var operand = visit(node.getChild(0));
+        String tmp  = ollirTypes.nextTemp();
+
+        String computation = operand.getComputation()
+                + tmp + ".bool :=.bool !.bool " + operand.getCode() + END_STMT;
+        return new OllirExprResult(tmp + ".bool", computation);
+    }
+
+    /**
+     * Generates jumping code for a boolean expression used as a condition. Control reaches trueLabel if the
+     * expression holds and falseLabel otherwise, without materializing the intermediate boolean values of
+     * comparisons, '&&', '||' and '!'.
+     *
+     * @param node       the condition
+     * @param trueLabel  label to jump to when the condition holds
+     * @param falseLabel label to jump to when the condition does not hold
+     * @return the OLLIR code of the condition
+     */
+    public String visitCondition(JmmNode node, String trueLabel, String falseLabel) {
+        StringBuilder code = new StringBuilder();
+
+        switch (Kind.fromString(node.getKind())) {
+            case PARENTHESIS -> code.append(visitCondition(node.getChild(0), trueLabel, falseLabel));
+            case NOT -> code.append(visitCondition(node.getChild(0), falseLabel, trueLabel));
+            case AND -> {
+                String rightLbl = "andRight" + ollirTypes.nextTemp("");
+                code.append(visitCondition(node.getChild(0), rightLbl, falseLabel))
+                        .append(rightLbl).append(":\n")
+                        .append(visitCondition(node.getChild(1), trueLabel, falseLabel));
+            }
+            case OR -> {
+                String rightLbl = "orRight" + ollirTypes.nextTemp("");
+                code.append(visitCondition(node.getChild(0), trueLabel, rightLbl))
+                        .append(rightLbl).append(":\n")
+                        .append(visitCondition(node.getChild(1), trueLabel, falseLabel));
+            }
+            case BOOLEAN -> {
+                String target = node.get("name").equals("true") ? trueLabel : falseLabel;
+                code.append("goto ").append(target).append(END_STMT);
+            }
+            case COMPARE -> {
+                var lhs = visit(node.getChild(0));
+                var rhs = visit(node.getChild(1));
+                code.append(lhs.getComputation())
+                        .append(rhs.getComputation())
+                        .append("if (").append(lhs.getCode())
+                        .append(" ").append(node.get("op")).append(".bool ")
+                        .append(rhs.getCode()).append(") goto ").append(trueLabel).append(END_STMT)
+                        .append("goto ").append(falseLabel).append(END_STMT);
+            }
+            default -> {
+                var cond = visit(node);
+                code.append(cond.getComputation())
+                        .append("if (").append(cond.getCode()).append(") goto ").append(trueLabel).append(END_STMT)
+                        .append("goto ").append(falseLabel).append(END_STMT);
+            }
+        }
+
+        return code.toString();
+    }
+
     private OllirExprResult visitBoolean(JmmNode node, Void unused) {
         String lit = node.get("name").equals("true") ? "1" : "0";
         String code = lit + ".bool";
@@ -245,15 +326,17 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     }
 
     private OllirExprResult visitArrayLiteral(JmmNode node, Void unused) {
-        int size = node.getNumChildren();
+        // The elements are the children of the ArrayInit node, which is absent in '[]'
+        var elements = node.getNumChildren() > 0 ? node.getChild(0).getChildren() : List.<JmmNode>of();
+        int size = elements.size();
         String temp = ollirTypes.nextTemp();
         StringBuilder code = new StringBuilder();
         code.append(temp).append(".array.i32 :=.array.i32 new(array, ")
                 .append(size).append(".i32)").append(".array.i32;\n");
         for (int i = 0; i < size; i++) {
-            var elemResult = visit(node.getChild(i));
+            var elemResult = visit(elements.get(i));
             code.append(elemResult.getComputation());
-            code.append(temp).append("[").append(i).append("].i32 :=.i32 ")
+            code.append(temp).append("[").append(i).append(".i32].i32 :=.i32 ")
                     .append(elemResult.getCode()).append(";\n");
         }
         return new OllirExprResult(temp + ".array.i32", code.toString());
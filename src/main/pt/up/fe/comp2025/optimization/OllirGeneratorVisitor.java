@@ -2,22 +2,27 @@ package pt.up.fe.comp2025.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.CompilerConfig;
 import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.KindVisitor;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.utils.ParallelUtils;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static pt.up.fe.comp2025.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are not expressions.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class OllirGeneratorVisitor extends KindVisitor<Void, String> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -35,13 +40,38 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    private final Map<String, String> config;
+
+    private final int threads;
+
+    private final boolean optimize;
+
+    private final int unrollFactor;
+
+    /**
+     * Temporaries of the methods generated by other visitors.
+     */
+    private final Set<String> methodTemporaries = new HashSet<>();
 
 
     public OllirGeneratorVisitor(SymbolTable table) {
+        this(table, Collections.emptyMap());
+    }
+
+    /**
+     * @param table
+     * @param config options of the compiler, which select the number of threads used to generate the methods of the
+     *               class and the optimizations applied to each method
+     */
+    public OllirGeneratorVisitor(SymbolTable table, Map<String, String> config) {
         this.table = table;
+        this.config = config;
+        this.threads = CompilerConfig.getThreads(config);
+        this.optimize = CompilerConfig.getOptimize(config);
+        this.unrollFactor = optimize ? CompilerConfig.getUnrollFactor(config) : 1;
         this.types = new TypeUtils(table);
-        this.ollirTypes = new OptUtils(types);
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.ollirTypes = new OptUtils(table);
+        exprVisitor = new OllirExprGeneratorVisitor(table, ollirTypes);
     }
 
 
@@ -227,6 +257,16 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
 
     private String visitMethodDecl(JmmNode node, Void unused) {
+        try (var scope = CompilerMetrics.measure("ollir/method", node.get("name"))) {
+            var code = generateMethodDecl(node, unused);
+            if (scope.isEnabled()) {
+                scope.count("lines", code.lines().count());
+            }
+            return code;
+        }
+    }
+
+    private String generateMethodDecl(JmmNode node, Void unused) {
         StringBuilder code = new StringBuilder();
         code.append(".method ");
         if (node.getBoolean("isPublic", false)) code.append("public ");
@@ -247,6 +287,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(ollirTypes.toOllirType(TypeUtils.convertType(retTypeNode)))
                 .append(" {\n");
 
+        var body = new StringBuilder();
         for (var child : node.getChildren()) {
             String stmtKind = child.getKind();
             String childCode = "";
@@ -263,8 +304,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                 }
             }
             if (!childCode.isBlank()) {
-                code.append("   ").append(childCode);
-                if (!childCode.endsWith("\n")) code.append("\n");
+                body.append("   ").append(childCode);
+                if (!childCode.endsWith("\n")) body.append("\n");
             }
         }
         boolean isVoid = node.getChildren().stream()
@@ -276,8 +317,23 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                 .anyMatch(c -> c.getKind().equals("ReturnStmt") || c.getKind().equals("RetStmt"));
 
         if (isVoid && !hasReturn) {
-            code.append("   ret.V;\n");
+            body.append("   ret.V;\n");
+        }
+
+        var bodyCode = body.toString();
+
+        // Static methods have no 'this' whose fields could be promoted
+        if (optimize && !node.getBoolean("isStatic", false)) {
+            bodyCode = FieldPromotion.promote(bodyCode);
+        }
+        if (optimize) {
+            bodyCode = StrengthReduction.reduce(bodyCode);
+        }
+        if (unrollFactor > 1) {
+            bodyCode = LoopUnroller.unroll(bodyCode, unrollFactor);
         }
+
+        code.append(bodyCode);
         code.append("}\n\n");
         return code.toString();
     }
@@ -305,9 +361,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(buildConstructor());
         code.append(NL);
 
-        for (var child : node.getChildren(METHOD_DECL)) {
-            var result = visit(child);
-            code.append(result);
+        // Each method is generated by its own visitor, so that temporaries and labels only depend on the method itself
+        // and methods can be generated in any order
+        var methods = ParallelUtils.map(node.getChildren(METHOD_DECL), threads, method -> {
+            var visitor = new OllirGeneratorVisitor(table, config);
+            return new GeneratedMethod(visitor.visit(method), visitor.getTemporaries());
+        });
+        for (var result : methods) {
+            code.append(result.code());
+            methodTemporaries.addAll(result.temporaries());
         }
 
         code.append(R_BRACKET);
@@ -316,6 +378,18 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
 
+    /**
+     * @return the names of the temporaries created for the code generated by this visitor
+     */
+    public Set<String> getTemporaries() {
+        var result = new HashSet<>(ollirTypes.getTemporaries());
+        result.addAll(methodTemporaries);
+        return result;
+    }
+
+    private record GeneratedMethod(String code, Set<String> temporaries) {
+    }
+
     private String buildConstructor() {
 
         return """
@@ -401,64 +475,25 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitIfStmt(JmmNode node, Void unused) {
-        List<JmmNode> chain = new ArrayList<>();
-        JmmNode cur = node;
-        while (true) {
-            chain.add(cur);
-            JmmNode elseNode = cur.getNumChildren() > 2 ? cur.getChild(2) : null;
-            JmmNode nextIf = null;
-            if (elseNode != null) {
-                if (elseNode.getKind().equals(Kind.STMT.getNodeName()) ||
-                        elseNode.getKind().equals("Block")) {
-                    if (elseNode.getNumChildren() == 1 &&
-                            elseNode.getChild(0).getKind().equals(Kind.IF_STMT.getNodeName())) {
-                        nextIf = elseNode.getChild(0);
-                    }
-                } else if (elseNode.getKind().equals(Kind.IF_STMT.getNodeName())) {
-                    nextIf = elseNode;
-                }
-            }
-            if (nextIf != null) {
-                cur = nextIf;
-            } else {
-                break;
-            }
-        }
-        int n = chain.size();
-
-        List<String> thenLabels = IntStream.range(0, n)
-                .mapToObj(i -> "then" + (n - 1 - i))
-                .collect(Collectors.toList());
-        List<String> endifLabels = IntStream.range(0, n)
-                .mapToObj(i -> "endif" + i)
-                .collect(Collectors.toList());
+        String labelThen = "then" + ollirTypes.nextTemp("");
+        String labelElse = "else" + ollirTypes.nextTemp("");
+        String labelEnd = "endif" + ollirTypes.nextTemp("");
 
         StringBuilder code = new StringBuilder();
 
-        for (int i = 0; i < n; i++) {
-            var cond = exprVisitor.visit(chain.get(i).getChild(0));
-            code.append(cond.getComputation());
-            code.append("if (").append(cond.getCode()).append(") goto ")
-                    .append(thenLabels.get(i)).append(";\n");
-        }
+        code.append(exprVisitor.visitCondition(node.getChild(0), labelThen, labelElse));
 
-        JmmNode lastElse = chain.get(n - 1).getNumChildren() > 2
-                ? chain.get(n - 1).getChild(2)
-                : null;
-        if (lastElse != null) {
-            code.append(visit(lastElse));
-        }
-        code.append("goto ").append(endifLabels.get(0)).append(";\n");
-
-        for (int i = 0; i < n; i++) {
-            int idx = n - 1 - i;
-            String thenLbl = thenLabels.get(idx);
-            String endifLbl = endifLabels.get(i);
-            code.append(thenLbl).append(":\n");
-            code.append(visit(chain.get(idx).getChild(1)));
-            code.append("goto ").append(endifLbl).append(";\n");
-            code.append(endifLbl).append(":\n");
+        // else-if chains are handled by the recursive visit of the else statement
+        code.append(labelElse).append(":\n");
+        if (node.getNumChildren() > 2) {
+            code.append(visit(node.getChild(2)));
         }
+        code.append("goto ").append(labelEnd).append(";\n");
+
+        code.append(labelThen).append(":\n")
+                .append(visit(node.getChild(1)));
+
+        code.append(labelEnd).append(":\n");
 
         return code.toString();
     }
@@ -469,16 +504,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         String labelBody = "body" + ollirTypes.nextTemp("");
         String labelEnd = "endwhile" + ollirTypes.nextTemp("");
 
-        var condExpr = exprVisitor.visit(node.getChild(0));
-
         StringBuilder code = new StringBuilder();
 
         code.append(labelCond).append(":\n")
-                .append(condExpr.getComputation());
-
-        code.append("if (").append(condExpr.getCode())
-                .append(") goto ").append(labelBody).append(";\n")
-                .append("goto ").append(labelEnd).append(";\n");
+                .append(exprVisitor.visitCondition(node.getChild(0), labelBody, labelEnd));
 
         code.append(labelBody).append(":\n")
                 .append(visit(node.getChild(1)))
@@ -1,11 +1,19 @@
 package pt.up.fe.comp2025.optimization;
 
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2025.ast.TypeUtils;
 import pt.up.fe.specs.util.collections.AccumulatorMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
 import static pt.up.fe.comp2025.ast.Kind.TYPE;
 
 /**
@@ -13,12 +21,33 @@ import static pt.up.fe.comp2025.ast.Kind.TYPE;
  */
 public class OptUtils {
 
+    /**
+     * Estimated number of iterations of each loop, used to weigh the code inside loops when there is no profile.
+     */
+    public static final int LOOP_WEIGHT = 10;
+
     private final AccumulatorMap<String> temporaries;
     private final TypeUtils types;
 
-    public OptUtils(TypeUtils types) {
-        this.types = types;
+    /**
+     * Names of the fields, parameters and local variables of the class, which temporaries cannot take.
+     */
+    private final Set<String> declared = new HashSet<>();
+
+    /**
+     * Names of the temporaries created so far.
+     */
+    private final Set<String> created = new HashSet<>();
+
+    public OptUtils(SymbolTable table) {
+        this.types = new TypeUtils(table);
         this.temporaries = new AccumulatorMap<>();
+
+        table.getFields().stream().map(Symbol::getName).forEach(declared::add);
+        for (var method : table.getMethods()) {
+            table.getParameters(method).stream().map(Symbol::getName).forEach(declared::add);
+            table.getLocalVariables(method).stream().map(Symbol::getName).forEach(declared::add);
+        }
     }
 
     public String nextTemp() {
@@ -26,8 +55,23 @@ public class OptUtils {
     }
 
     public String nextTemp(String prefix) {
-        var nextTempNum = temporaries.add(prefix) - 1;
-        return prefix + nextTempNum;
+        String name;
+        do {
+            name = prefix + (temporaries.add(prefix) - 1);
+        } while (declared.contains(name));
+
+        created.add(name);
+        return name;
+    }
+
+    /**
+     * Names of the variables created by {@link #nextTemp}, which the backend can remove when they are only stored and
+     * loaded once, unlike variables of the source program with the same kind of name.
+     *
+     * @return
+     */
+    public Set<String> getTemporaries() {
+        return Collections.unmodifiableSet(created);
     }
 
     public String toOllirType(JmmNode typeNode) {
@@ -57,4 +101,49 @@ public class OptUtils {
     private String toOllirType(String typeName) {
         return toOllirType(typeName, false);
     }
+
+    /**
+     * The passes over generated OLLIR code, such as {@link FieldPromotion}, work on the code of the body of a method,
+     * which has one instruction or label per line.
+     *
+     * @param body OLLIR code of the body of a method
+     * @return the instructions and labels of the body, without indentation or blank lines
+     */
+    static List<String> getLines(String body) {
+        return body.lines().map(String::strip).filter(line -> !line.isEmpty()).toList();
+    }
+
+    /**
+     * @param lines instructions and labels, as given by {@link #getLines}
+     * @return the OLLIR code with one instruction or label per line
+     */
+    static String joinLines(List<String> lines) {
+        var code = new StringBuilder();
+        for (var line : lines) {
+            code.append(line).append("\n");
+        }
+        return code.toString();
+    }
+
+    /**
+     * Used by passes over generated OLLIR code that need new variables.
+     *
+     * @param name  preferred name
+     * @param lines OLLIR code where the variable is added
+     * @return the given name, followed by as many underscores as needed for it not to be used by the code
+     */
+    public static String getUnusedName(String name, List<String> lines) {
+        while (isUsed(name, lines)) {
+            name += "_";
+        }
+        return name;
+    }
+
+    /**
+     * @return true if any of the lines reads or writes the variable with the given name
+     */
+    static boolean isUsed(String name, List<String> lines) {
+        var pattern = Pattern.compile("\\b" + Pattern.quote(name) + "\\.");
+        return lines.stream().anyMatch(line -> pattern.matcher(line).find());
+    }
 }
@@ -0,0 +1,456 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces calls to pure methods of the class with constant arguments, such as 'this.fib(10)', by their result.
+ * <p>
+ * The methods found by {@link PurityAnalysis} are run by a small interpreter that supports int and boolean variables,
+ * arithmetic, comparisons, control flow and calls to other pure methods. A call is only folded if its method runs to
+ * completion using nothing else, so methods that read fields or use arrays keep their calls. Each call has a limited
+ * number of steps and of nested calls, which keeps the compile time bounded for methods that take too long or never
+ * return.
+ */
+public class PureCallFolder {
+
+    /**
+     * Steps that the evaluation of a single call can take, counting each statement and expression.
+     */
+    public static final int DEFAULT_FUEL = 100_000;
+
+    /**
+     * Calls that can be nested during the evaluation of a call.
+     */
+    public static final int MAX_DEPTH = 256;
+
+    private final JmmNode classDecl;
+    private final SymbolTable table;
+    private final int maxFuel;
+    private final Set<String> pure;
+    private final Map<String, JmmNode> methods = new HashMap<>();
+
+    /**
+     * Results of the calls already evaluated, by method and arguments, and calls that need something not known at
+     * compile time, so each call is only evaluated once. Calls that reached the limits are not remembered, as they may
+     * be evaluated when they are not nested in others.
+     */
+    private final Map<String, Object> results = new HashMap<>();
+    private final Set<String> failed = new HashSet<>();
+
+    private int fuel;
+
+    public PureCallFolder(JmmNode classDecl, SymbolTable table) {
+        this(classDecl, table, DEFAULT_FUEL);
+    }
+
+    /**
+     * @param classDecl
+     * @param table
+     * @param fuel      steps that the evaluation of a single call can take
+     */
+    public PureCallFolder(JmmNode classDecl, SymbolTable table, int fuel) {
+        this.classDecl = classDecl;
+        this.table = table;
+        this.maxFuel = fuel;
+        this.pure = PurityAnalysis.findPureMethods(classDecl, table);
+
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL.getNodeName())) {
+            methods.put(method.get("name"), method);
+        }
+    }
+
+    /**
+     * Folds the calls of every method of the class, innermost first.
+     *
+     * @return the number of calls folded
+     */
+    public int fold() {
+        int folded = 0;
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL.getNodeName())) {
+            var calls = new ArrayList<JmmNode>();
+            collectCalls(method, calls);
+
+            for (var call : calls) {
+                if (fold(call, method.get("name"))) {
+                    folded++;
+                }
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Adds the calls under the node, with each call after the calls in its arguments.
+     */
+    private static void collectCalls(JmmNode node, List<JmmNode> calls) {
+        for (var child : node.getChildren()) {
+            collectCalls(child, calls);
+        }
+        if (Kind.METHOD_CALL.check(node)) {
+            calls.add(node);
+        }
+    }
+
+    private boolean fold(JmmNode call, String callerName) {
+        var callee = PurityAnalysis.getCalledMethod(call, callerName, table);
+        if (callee == null || !pure.contains(callee) || !hasKnownReceiver(call.getChild(0), callerName)) {
+            return false;
+        }
+
+        var args = new ArrayList<>();
+        for (var arg : call.getChildren().subList(1, call.getNumChildren())) {
+            if (Kind.INT.check(arg)) {
+                args.add(Integer.parseInt(arg.get("name")));
+            } else if (Kind.BOOLEAN.check(arg)) {
+                args.add(Boolean.parseBoolean(arg.get("name")));
+            } else {
+                return false;
+            }
+        }
+
+        Object result;
+        try {
+            fuel = maxFuel;
+            result = call(callee, args, 0);
+        } catch (NotConstant e) {
+            return false;
+        }
+
+        // A statement that only makes the call has nothing left to do
+        var parent = call.getParent();
+        if (Kind.EXPR_STMT.check(parent)) {
+            if (!Kind.check(parent.getParent(), Kind.BLOCK, Kind.METHOD_DECL)) {
+                return false;
+            }
+            parent.getParent().removeChild(parent);
+            return true;
+        }
+
+        if (result == null) {
+            return false;
+        }
+
+        var kind = result instanceof Integer ? Kind.INT : Kind.BOOLEAN;
+        var literal = call.copy(Collections.singletonList(kind.getNodeName()));
+        literal.put("name", result.toString());
+        call.replace(literal);
+        return true;
+    }
+
+    /**
+     * Removing a call must not remove an exception, so the receiver of a call cannot be a variable that may be null.
+     *
+     * @return true if the receiver is this, the class, or a local variable only assigned with new objects of the class
+     */
+    private boolean hasKnownReceiver(JmmNode receiver, String callerName) {
+        if (!Kind.ID.check(receiver)) {
+            return Kind.THIS.check(receiver);
+        }
+
+        var name = receiver.get("name");
+        if (!PurityAnalysis.isVariable(name, callerName, table)) {
+            return name.equals(table.getClassName());
+        }
+
+        var method = methods.get(callerName);
+        if (table.getParameters(callerName).stream().anyMatch(param -> param.getName().equals(name))) {
+            return false;
+        }
+
+        boolean assigned = false;
+        for (var assign : method.getDescendants(Kind.ASSIGN_STMT.getNodeName())) {
+            var target = assign.getChild(0);
+            if (!Kind.ID.check(target) || !target.get("name").equals(name)) {
+                continue;
+            }
+
+            var value = assign.getChild(1);
+            if (!Kind.NEW_OBJECT.check(value) || !value.get("name").equals(table.getClassName())) {
+                return false;
+            }
+            assigned = true;
+        }
+
+        // Every use must come after an assignment, which is only certain when it is the first statement of the method
+        return assigned && isAssignedFirst(method, name);
+    }
+
+    private static boolean isAssignedFirst(JmmNode method, String name) {
+        for (var child : method.getChildren()) {
+            if (Kind.TYPE.check(child) || Kind.PARAM_LIST.check(child) || Kind.VAR_DECL.check(child)) {
+                continue;
+            }
+            if (!Kind.ASSIGN_STMT.check(child)) {
+                return false;
+            }
+
+            var target = child.getChild(0);
+            if (Kind.ID.check(target) && target.get("name").equals(name)) {
+                return true;
+            }
+
+            // Other leading assignments may be skipped, as long as they cannot use the variable
+            if (child.getDescendants(Kind.ID.getNodeName()).stream()
+                    .anyMatch(id -> id.get("name").equals(name))) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the value returned by the method, or null if it is void
+     */
+    private Object call(String methodName, List<Object> args, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new LimitReached();
+        }
+
+        var key = methodName + args;
+        if (failed.contains(key)) {
+            throw new NotConstant();
+        }
+        if (results.containsKey(key)) {
+            return results.get(key);
+        }
+
+        var method = methods.get(methodName);
+        var params = table.getParameters(methodName);
+        if (params.size() != args.size()) {
+            throw new NotConstant();
+        }
+
+        Map<String, Object> env = new HashMap<>();
+        for (int i = 0; i < params.size(); i++) {
+            var type = params.get(i).getType();
+            if (type.isArray() || !isInstance(args.get(i), type.getName())) {
+                throw new NotConstant();
+            }
+            env.put(params.get(i).getName(), args.get(i));
+        }
+
+        var frame = new Frame(methodName, env, depth);
+        Object result;
+        try {
+            for (var child : method.getChildren()) {
+                if (!Kind.TYPE.check(child) && !Kind.PARAM_LIST.check(child) && !Kind.VAR_DECL.check(child)) {
+                    execute(child, frame);
+                }
+            }
+            result = null;
+        } catch (Return r) {
+            result = r.value;
+        } catch (LimitReached e) {
+            // The limits depend on where the evaluation started, so reaching them is not remembered
+            throw e;
+        } catch (NotConstant e) {
+            failed.add(key);
+            throw e;
+        }
+
+        var returnType = table.getReturnType(methodName);
+        if (returnType.isArray() || !isInstance(result, returnType.getName())) {
+            failed.add(key);
+            throw new NotConstant();
+        }
+
+        results.put(key, result);
+        return result;
+    }
+
+    private static boolean isInstance(Object value, String typeName) {
+        return switch (typeName) {
+            case "int" -> value instanceof Integer;
+            case "boolean" -> value instanceof Boolean;
+            case "void" -> value == null;
+            default -> false;
+        };
+    }
+
+    private void step() {
+        if (--fuel < 0) {
+            throw new LimitReached();
+        }
+    }
+
+    private void execute(JmmNode stmt, Frame frame) {
+        step();
+
+        switch (Kind.fromString(stmt.getKind())) {
+            case BLOCK -> {
+                for (var child : stmt.getChildren()) {
+                    execute(child, frame);
+                }
+            }
+            case IF_STMT -> {
+                if (evalBoolean(stmt.getChild(0), frame)) {
+                    execute(stmt.getChild(1), frame);
+                } else if (stmt.getNumChildren() > 2) {
+                    execute(stmt.getChild(2), frame);
+                }
+            }
+            case WHILE_STMT -> {
+                while (evalBoolean(stmt.getChild(0), frame)) {
+                    execute(stmt.getChild(1), frame);
+                }
+            }
+            case ASSIGN_STMT -> {
+                var target = stmt.getChild(0);
+                if (!isVariable(target, frame)) {
+                    throw new NotConstant();
+                }
+                frame.env().put(target.get("name"), eval(stmt.getChild(1), frame));
+            }
+            case EXPR_STMT -> eval(stmt.getChild(0), frame);
+            case VAR_DECL_STMT -> {
+            }
+            case RET_STMT -> execute(stmt.getChild(0), frame);
+            case RETURN_STMT -> throw new Return(stmt.getNumChildren() > 0 ? eval(stmt.getChild(0), frame) : null);
+            default -> throw new NotConstant();
+        }
+    }
+
+    private Object eval(JmmNode expr, Frame frame) {
+        step();
+
+        return switch (Kind.fromString(expr.getKind())) {
+            case INT -> Integer.parseInt(expr.get("name"));
+            case BOOLEAN -> Boolean.parseBoolean(expr.get("name"));
+            case ID -> {
+                var value = frame.env().get(expr.get("name"));
+                if (value == null) {
+                    throw new NotConstant();
+                }
+                yield value;
+            }
+            case PARENTHESIS -> eval(expr.getChild(0), frame);
+            case NOT -> !evalBoolean(expr.getChild(0), frame);
+            case ADD_SUB, MUL_DIV -> {
+                int a = evalInt(expr.getChild(0), frame);
+                int b = evalInt(expr.getChild(1), frame);
+                yield switch (expr.get("op")) {
+                    case "+" -> a + b;
+                    case "-" -> a - b;
+                    case "*" -> a * b;
+                    case "/" -> {
+                        if (b == 0) {
+                            throw new NotConstant();
+                        }
+                        yield a / b;
+                    }
+                    default -> throw new NotConstant();
+                };
+            }
+            case COMPARE -> {
+                var left = eval(expr.getChild(0), frame);
+                var right = eval(expr.getChild(1), frame);
+                yield switch (expr.get("op")) {
+                    case "==" -> left.equals(right);
+                    case "!=" -> !left.equals(right);
+                    case "<" -> toInt(left) < toInt(right);
+                    case ">" -> toInt(left) > toInt(right);
+                    case "<=" -> toInt(left) <= toInt(right);
+                    case ">=" -> toInt(left) >= toInt(right);
+                    default -> throw new NotConstant();
+                };
+            }
+            case AND -> evalBoolean(expr.getChild(0), frame) && evalBoolean(expr.getChild(1), frame);
+            case OR -> evalBoolean(expr.getChild(0), frame) || evalBoolean(expr.getChild(1), frame);
+            case METHOD_CALL -> {
+                var callee = PurityAnalysis.getCalledMethod(expr, frame.methodName(), table);
+                if (callee == null || !pure.contains(callee)) {
+                    throw new NotConstant();
+                }
+
+                // Only this and the class can be receivers, so no variable holding an object is needed
+                var receiver = expr.getChild(0);
+                if (!Kind.THIS.check(receiver) && !isClassReceiver(receiver, frame)) {
+                    throw new NotConstant();
+                }
+
+                var args = new ArrayList<>();
+                for (var arg : expr.getChildren().subList(1, expr.getNumChildren())) {
+                    args.add(eval(arg, frame));
+                }
+                yield call(callee, args, frame.depth() + 1);
+            }
+            default -> throw new NotConstant();
+        };
+    }
+
+    /**
+     * @return true if the node is a parameter or local variable of the method of the frame
+     */
+    private boolean isVariable(JmmNode node, Frame frame) {
+        return Kind.ID.check(node) && PurityAnalysis.isVariable(node.get("name"), frame.methodName(), table);
+    }
+
+    /**
+     * @return true if the receiver of a call names the class, and not a variable with the same name
+     */
+    private boolean isClassReceiver(JmmNode receiver, Frame frame) {
+        return Kind.ID.check(receiver) && !isVariable(receiver, frame)
+                && receiver.get("name").equals(table.getClassName());
+    }
+
+    private int evalInt(JmmNode expr, Frame frame) {
+        return toInt(eval(expr, frame));
+    }
+
+    private boolean evalBoolean(JmmNode expr, Frame frame) {
+        if (eval(expr, frame) instanceof Boolean value) {
+            return value;
+        }
+        throw new NotConstant();
+    }
+
+    private static int toInt(Object value) {
+        if (value instanceof Integer integer) {
+            return integer;
+        }
+        throw new NotConstant();
+    }
+
+    /**
+     * Variables of a method being evaluated.
+     */
+    private record Frame(String methodName, Map<String, Object> env, int depth) {
+    }
+
+    /**
+     * The value of a return statement, which ends the evaluation of its method.
+     */
+    private static class Return extends RuntimeException {
+        private final Object value;
+
+        private Return(Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    /**
+     * The evaluation of a call needs something that is not known at compile time.
+     */
+    private static class NotConstant extends RuntimeException {
+        private NotConstant() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The evaluation of a call ran out of fuel or nested too many calls.
+     */
+    private static class LimitReached extends NotConstant {
+    }
+}
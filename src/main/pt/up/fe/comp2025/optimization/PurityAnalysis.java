@@ -0,0 +1,132 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.Kind;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the methods of the class that have no side effects.
+ * <p>
+ * A method is pure if it does not write to fields or arrays, does not create objects of other classes, only calls
+ * methods of the class, and all the methods it calls are pure too. Pure methods may still read fields, so only some
+ * of them can be evaluated at compile time.
+ */
+public class PurityAnalysis {
+
+    /**
+     * @param classDecl
+     * @param table
+     * @return the names of the pure methods of the class
+     */
+    public static Set<String> findPureMethods(JmmNode classDecl, SymbolTable table) {
+        Map<String, Set<String>> calls = new HashMap<>();
+        var pure = new LinkedHashSet<String>();
+
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL.getNodeName())) {
+            var name = method.get("name");
+            var called = new HashSet<String>();
+            if (hasLocalSideEffects(method, table, called)) {
+                continue;
+            }
+
+            calls.put(name, called);
+            pure.add(name);
+        }
+
+        // A method that calls an impure method is impure, until no method changes
+        boolean changed = true;
+        while (changed) {
+            changed = pure.removeIf(name -> !pure.containsAll(calls.get(name)));
+        }
+
+        return pure;
+    }
+
+    /**
+     * @param called filled with the methods of the class called by the method
+     * @return true if the method itself writes fields or arrays, or calls methods of other classes
+     */
+    private static boolean hasLocalSideEffects(JmmNode method, SymbolTable table, Set<String> called) {
+        var methodName = method.get("name");
+
+        for (var node : method.getDescendants()) {
+            if (Kind.ASSIGN_STMT.check(node)) {
+                var target = node.getChild(0);
+                if (!Kind.ID.check(target) || !isVariable(target.get("name"), methodName, table)) {
+                    return true;
+                }
+            } else if (Kind.METHOD_CALL.check(node)) {
+                var callee = getCalledMethod(node, methodName, table);
+                if (callee == null) {
+                    return true;
+                }
+                called.add(callee);
+            } else if (Kind.NEW_OBJECT.check(node) && !node.get("name").equals(table.getClassName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the method of the class called by the given call, or null if it calls a method of another class
+     */
+    public static String getCalledMethod(JmmNode call, String callerName, SymbolTable table) {
+        var methodName = call.get("methodName");
+        if (!table.getMethods().contains(methodName)) {
+            return null;
+        }
+
+        var receiver = call.getChild(0);
+        if (Kind.THIS.check(receiver)) {
+            return methodName;
+        }
+        if (!Kind.ID.check(receiver)) {
+            return null;
+        }
+
+        var name = receiver.get("name");
+        var variable = getVariable(name, callerName, table);
+        if (variable == null) {
+            return name.equals(table.getClassName()) ? methodName : null;
+        }
+
+        var type = variable.getType();
+        return !type.isArray() && type.getName().equals(table.getClassName()) ? methodName : null;
+    }
+
+    /**
+     * @return true if the name is a parameter or local variable of the method, which hide the fields
+     */
+    public static boolean isVariable(String name, String methodName, SymbolTable table) {
+        var variable = getVariable(name, methodName, table);
+        return variable != null && !table.getFields().contains(variable);
+    }
+
+    private static Symbol getVariable(String name, String methodName, SymbolTable table) {
+        for (var symbol : table.getLocalVariables(methodName)) {
+            if (symbol.getName().equals(name)) {
+                return symbol;
+            }
+        }
+        for (var symbol : table.getParameters(methodName)) {
+            if (symbol.getName().equals(name)) {
+                return symbol;
+            }
+        }
+        for (var symbol : table.getFields()) {
+            if (symbol.getName().equals(name)) {
+                return symbol;
+            }
+        }
+        return null;
+    }
+}
@@ -1,48 +1,189 @@
 package pt.up.fe.comp2025.optimization;
 
-import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.ArrayOperand;
 import org.specs.comp.ollir.Method;
 import org.specs.comp.ollir.Operand;
 import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.tree.TreeNode;
 
 import java.util.*;
 
+/**
+ * Assigns JVM locals to the variables of a method by coloring the graph of their live intervals, or with linear scan
+ * over the intervals, which is faster for large methods.
+ * <p>
+ * {@code this} and the parameters keep the locals the JVM gives them, the other variables are colored and each color
+ * becomes a local after them, or the local of a parameter that is no longer live. Colors are ordered by how often
+ * their variables are used, with uses inside loops counting {@link OptUtils#LOOP_WEIGHT} times more for each enclosing
+ * loop, so the most used variables get the locals that have 1-byte loads and stores (0 to 3). With a profile, each use
+ * counts as many times as its instruction ran instead.
+ */
 public class RegisterAllocator {
 
-    public static Map<String, Integer> allocate(Method method, int r) {
-        var intervals = computeIntervals(method);
-        var graph     = buildInterferenceGraph(intervals);
+    /**
+     * Locals that can be accessed with the 1-byte forms of load and store (e.g. iload_3).
+     */
+    private static final int SHORT_FORM_LOCALS = 4;
+
+    /**
+     * The registers of a method and the message describing how many JVM locals it uses. Allocation does not print
+     * anything itself, so methods can be allocated concurrently and their messages shown in a fixed order.
+     *
+     * @param registers register of each variable
+     * @param report
+     */
+    public record Allocation(Map<String, Integer> registers, String report) {
+    }
+
+    public static Allocation allocate(Method method, int r) {
+        return allocate(method, r, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param r                   maximum number of locals for the variables, 0 for as few as possible and a negative
+     *                            number to keep one color per variable
+     * @param linearScanThreshold methods with at least this many instructions are allocated with linear scan instead
+     *                            of graph coloring
+     */
+    public static Allocation allocate(Method method, int r, int linearScanThreshold) {
+        return allocate(method, r, linearScanThreshold, null);
+    }
+
+    /**
+     * @param r                   maximum number of locals for the variables, 0 for as few as possible and a negative
+     *                            number to keep one color per variable
+     * @param linearScanThreshold methods with at least this many instructions are allocated with linear scan instead
+     *                            of graph coloring
+     * @param counts              how many times each instruction ran, from a profile, or null to estimate it from the
+     *                            loops
+     */
+    public static Allocation allocate(Method method, int r, int linearScanThreshold, long[] counts) {
+        var intervals = computeIntervals(method, counts);
         int numVars   = intervals.size();
-        Map<String,Integer> coloring;
+        boolean linear = r >= 0 && method.getInstructions().size() >= linearScanThreshold;
 
-        if (r > 0) {
-            coloring = colorGraph(graph, r);
-            if (coloring == null) {
-                coloring = colorGraph(graph, numVars);
-                int used = Collections.max(coloring.values()) + 1;
-                System.out.println("Method " + method.getMethodName()
-                        + ": minimized to " + used + " JVM local(s)");
-            } else {
-                System.out.println("Method " + method.getMethodName()
-                        + ": using at most " + r + " JVM local(s)");
-            }
+        // Colors are locals counted from the first parameter, so parameters are precolored with their own local. The
+        // locals of parameters that are never accessed are kept for them, the others are free once the parameter is
+        // dead
+        int first = method.isStaticMethod() ? 0 : 1;
+        int numParams = method.getParams().size();
+        var precolored = new LinkedHashMap<String, Integer>();
+        var reserved = new HashSet<Integer>();
+        for (int i = 0; i < numParams; i++) {
+            var name = method.getParams().get(i) instanceof Operand param ? getOperandName(param) : null;
+            if (name != null && intervals.containsKey(name)) precolored.put(name, i);
+            else reserved.add(i);
         }
-        else if (r == 0) {
-            coloring = colorGraph(graph, numVars);
-            int used = Collections.max(coloring.values()) + 1;
-            System.out.println("Method " + method.getMethodName()
-                    + ": minimized to " + used + " JVM local(s)");
+
+        Map<String,Integer> coloring;
+        String report;
+
+        if (linear) {
+            coloring = linearScan(intervals, precolored, numParams);
+            int used = countLocals(coloring, numParams);
+            report = "Method " + method.getMethodName()
+                    + (r > 0 && used <= r
+                    ? ": using at most " + r + " JVM local(s)"
+                    : ": minimized to " + used + " JVM local(s)")
+                    + " with linear scan";
         }
         else {
-            coloring = colorGraph(graph, numVars);
-            System.out.println("Method " + method.getMethodName()
-                    + ": using original " + numVars + " JVM local(s)");
+            var graph = buildInterferenceGraph(intervals);
+
+            if (r > 0) {
+                coloring = colorGraph(graph, numParams + r, precolored, reserved);
+                if (coloring == null) {
+                    coloring = colorGraph(graph, numParams + numVars, precolored, reserved);
+                    report = "Method " + method.getMethodName()
+                            + ": minimized to " + countLocals(coloring, numParams) + " JVM local(s)";
+                } else {
+                    report = "Method " + method.getMethodName()
+                            + ": using at most " + r + " JVM local(s)";
+                }
+            }
+            else if (r == 0) {
+                coloring = colorGraph(graph, numParams + numVars, precolored, reserved);
+                report = "Method " + method.getMethodName()
+                        + ": minimized to " + countLocals(coloring, numParams) + " JVM local(s)";
+            }
+            else {
+                coloring = colorGraph(graph, numParams + numVars, precolored, reserved);
+                report = "Method " + method.getMethodName()
+                        + ": using original " + numVars + " JVM local(s)";
+            }
         }
 
-        int base = (method.isStaticMethod() ? 0 : 1) + method.getParams().size();
+        var slots = orderColors(coloring, intervals, numParams);
         var result = new LinkedHashMap<String,Integer>();
-        coloring.forEach((var, col) -> result.put(var, base + col));
-        return result;
+        coloring.forEach((var, col) -> {
+            if (!precolored.containsKey(var)) result.put(var, first + slots[col]);
+        });
+
+        // Locals that are never accessed do not need a local of their own
+        for (var var : method.getVarTable().keySet()) {
+            if (!var.equals("this") && !intervals.containsKey(var) && !isParam(method, var)) result.put(var, first);
+        }
+
+        // Bytes of the loads and stores of the colored variables, with colors in the order of the coloring
+        int before = 0, after = 0;
+        for (var entry : coloring.entrySet()) {
+            int accesses = intervals.get(entry.getKey()).accesses;
+            before += accesses * accessSize(first + entry.getValue());
+            after += accesses * accessSize(first + slots[entry.getValue()]);
+        }
+        report += ", loads and stores take " + after + " byte(s) instead of " + before;
+
+        return new Allocation(result, report);
+    }
+
+    private static boolean isParam(Method method, String name) {
+        for (var param : method.getParams()) {
+            if (param instanceof Operand operand && getOperandName(operand).equals(name)) return true;
+        }
+        return false;
+    }
+
+    private static int countColors(Map<String, Integer> coloring) {
+        return coloring.values().stream().mapToInt(color -> color + 1).max().orElse(0);
+    }
+
+    /**
+     * @return the number of locals used after the ones of the parameters
+     */
+    private static int countLocals(Map<String, Integer> coloring, int numParams) {
+        return Math.max(countColors(coloring) - numParams, 0);
+    }
+
+    /**
+     * Colors do not depend on each other, so they can be given to locals in any order, except for the colors of the
+     * parameters, which stay in their locals.
+     *
+     * @return the position of each color: the parameters first, then the other colors from the heaviest variables to
+     * the lightest
+     */
+    private static int[] orderColors(Map<String, Integer> coloring, Map<String, Interval> intervals, int numParams) {
+        int numColors = Math.max(countColors(coloring), numParams);
+        var weights = new long[numColors];
+        coloring.forEach((var, col) -> weights[col] += intervals.get(var).weight);
+
+        // Ties keep the order of the coloring, so the result does not depend on anything else
+        var colors = new ArrayList<Integer>();
+        for (int col = numParams; col < numColors; col++) colors.add(col);
+        colors.sort((x, y) -> Long.compare(weights[y], weights[x]));
+
+        var slots = new int[numColors];
+        for (int col = 0; col < numParams; col++) slots[col] = col;
+        for (int i = 0; i < colors.size(); i++) slots[colors.get(i)] = numParams + i;
+        return slots;
+    }
+
+    /**
+     * @return the size in bytes of a load or store of the given local
+     */
+    private static int accessSize(int reg) {
+        if (reg < SHORT_FORM_LOCALS) return 1;
+        // Locals above 255 need the wide prefix and a 2-byte index
+        return reg <= 255 ? 2 : 4;
     }
 
     private static Map<String, Set<String>> buildInterferenceGraph(
@@ -67,14 +208,20 @@ public class RegisterAllocator {
         return graph;
     }
 
+    /**
+     * @param precolored nodes whose color is fixed
+     * @param reserved   colors that no node can take
+     * @return the color of each node, or null if more than k colors are needed
+     */
     private static Map<String, Integer> colorGraph(
-            Map<String, Set<String>> graph, int k) {
-        Map<String, Integer> color = new LinkedHashMap<>();
+            Map<String, Set<String>> graph, int k, Map<String, Integer> precolored, Set<Integer> reserved) {
+        Map<String, Integer> color = new LinkedHashMap<>(precolored);
         var nodes = new ArrayList<>(graph.keySet());
+        nodes.removeIf(precolored::containsKey);
         nodes.sort((x, y) -> graph.get(y).size() - graph.get(x).size());
 
         for (String n : nodes) {
-            Set<Integer> forbidden = new HashSet<>();
+            Set<Integer> forbidden = new HashSet<>(reserved);
             for (String nb : graph.get(n)) {
                 if (color.containsKey(nb)) forbidden.add(color.get(nb));
             }
@@ -87,98 +234,262 @@ public class RegisterAllocator {
         return color;
     }
 
+    /**
+     * Linear scan over the intervals sorted by start: each interval takes the lowest color freed by the intervals that
+     * ended before it, or a new color. Runs in O(n log n + n * p) on the number of variables n and of parameters p,
+     * since an interval may skip each free color of a parameter, instead of building the interference graph, which is
+     * quadratic on n. Since variables interfere exactly when their intervals overlap, the number of colors is the
+     * largest number of variables live at the same position.
+     * <p>
+     * Parameters keep their color. Until a parameter becomes live its color is free, but only for intervals that end
+     * before the parameter starts. Colors of parameters that are never accessed are not used.
+     */
+    private static Map<String, Integer> linearScan(Map<String, Interval> intervals, Map<String, Integer> precolored,
+                                                   int numParams) {
+        // The sort is stable, so intervals that start together keep the order in which variables were found
+        var sorted = new ArrayList<>(intervals.entrySet());
+        sorted.sort(Comparator.comparingInt(entry -> entry.getValue().start));
+
+        Map<String, Integer> color = new LinkedHashMap<>();
+        var active = new PriorityQueue<Map.Entry<String, Interval>>(
+                Comparator.comparingInt(entry -> entry.getValue().end));
+        var free = new TreeSet<>(precolored.values());
+        int numColors = numParams;
+
+        // Interval of the parameter of each color, to check a free color in constant time
+        Map<Integer, Interval> paramIntervals = new HashMap<>();
+        precolored.forEach((param, c) -> paramIntervals.put(c, intervals.get(param)));
+
+        for (var entry : sorted) {
+            var interval = entry.getValue();
+            while (!active.isEmpty() && active.peek().getValue().end < interval.start) {
+                free.add(color.get(active.poll().getKey()));
+            }
+
+            Integer c = precolored.get(entry.getKey());
+            if (c != null) {
+                free.remove(c);
+            } else {
+                c = null;
+                for (int candidate : free) {
+                    if (!isTakenLater(candidate, interval, paramIntervals)) {
+                        c = candidate;
+                        break;
+                    }
+                }
+
+                if (c == null) c = numColors++;
+                else free.remove(c);
+            }
+
+            color.put(entry.getKey(), c);
+            active.add(entry);
+        }
+
+        return color;
+    }
+
+    /**
+     * @return true if the color belongs to a parameter that becomes live during the given interval
+     */
+    private static boolean isTakenLater(int color, Interval interval, Map<Integer, Interval> paramIntervals) {
+        var param = paramIntervals.get(color);
+        return param != null && param.overlaps(interval);
+    }
+
+    /**
+     * Positions where a variable is live, plus how much it is used. Position 2i is right before instruction i and
+     * 2i + 1 right after it, so a variable read by an instruction does not overlap the one it writes.
+     */
     private static class Interval {
         int start, end;
+        long weight;
+        int accesses;
 
         Interval(int s, int e) {
             start = s;
             end = e;
         }
 
+        void add(int position) {
+            start = Math.min(start, position);
+            end = Math.max(end, position);
+        }
+
         boolean overlaps(Interval o) {
             return this.start <= o.end && o.start <= this.end;
         }
     }
 
-    private static Map<String, Interval> computeIntervals(Method m) {
-        Map<String, Interval> intervals = new LinkedHashMap<>();
+    /**
+     * Computes the live interval of each variable, except for this, from the variables live at each instruction. A
+     * variable that is live around a loop is live in all of it.
+     */
+    private static Map<String, Interval> computeIntervals(Method m, long[] counts) {
         List<Instruction> code = m.getInstructions();
+        int n = code.size();
 
-        for (int i = 0; i < code.size(); i++) {
-            Instruction ins = code.get(i);
-            final int idx = i;
-
-            getDest(ins).ifPresent(dest -> {
-                String var = getOperandName(dest);
-                intervals.computeIfAbsent(var, v -> new Interval(idx, idx))
-                        .start = idx;
-            });
-
-            for (Operand use : getUses(ins)) {
-                String var = getOperandName(use);
-                intervals.computeIfAbsent(var, v -> new Interval(idx, idx))
-                        .end = Math.max(intervals.get(var).end, idx);
-            }
+        var fixed = Set.of("this");
+
+        var uses = new ArrayList<Set<String>>(n);
+        var defs = new ArrayList<String>(n);
+        for (var ins : code) {
+            var insUses = new LinkedHashSet<String>();
+            var def = getDef(ins);
+            collectUses(ins, insUses);
+            insUses.removeIf(name -> fixed.contains(name) || !m.getVarTable().containsKey(name));
+            uses.add(insUses);
+            defs.add(def != null && !fixed.contains(def) ? def : null);
         }
 
-        return intervals;
-    }
+        var successors = getSuccessors(m);
+        var liveIn = new ArrayList<Set<String>>(n);
+        var liveOut = new ArrayList<Set<String>>(n);
+        for (int i = 0; i < n; i++) {
+            liveIn.add(new HashSet<>());
+            liveOut.add(new HashSet<>());
+        }
+
+        // Backwards data-flow, until no set changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = n - 1; i >= 0; i--) {
+                var out = liveOut.get(i);
+                for (int succ : successors.get(i)) {
+                    changed |= out.addAll(liveIn.get(succ));
+                }
 
-    private static Optional<Operand> getDest(Instruction ins) {
-        if (ins instanceof AssignInstruction ai) {
-            Element e = ai.getDest();
-            if (e instanceof Operand) return Optional.of((Operand) e);
+                var in = new HashSet<>(out);
+                if (defs.get(i) != null) in.remove(defs.get(i));
+                in.addAll(uses.get(i));
+                changed |= liveIn.get(i).addAll(in);
+            }
         }
-        if (ins instanceof ReturnInstruction ri && ri.hasReturnValue()) {
-            Element e = ri.getOperand().orElse(null);
-            if (e instanceof Operand) return Optional.of((Operand) e);
+
+        var depths = getLoopDepths(m);
+        Map<String, Interval> intervals = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            long weight = counts != null ? counts[i] : (long) Math.pow(OptUtils.LOOP_WEIGHT, Math.min(depths[i], 12));
+
+            for (var var : liveIn.get(i)) {
+                intervals.computeIfAbsent(var, v -> new Interval(Integer.MAX_VALUE, 0)).add(2 * i);
+            }
+            for (var var : liveOut.get(i)) {
+                intervals.computeIfAbsent(var, v -> new Interval(Integer.MAX_VALUE, 0)).add(2 * i + 1);
+            }
+
+            for (var var : uses.get(i)) {
+                var interval = intervals.get(var);
+                interval.weight += weight;
+                interval.accesses++;
+            }
+
+            var def = defs.get(i);
+            if (def != null) {
+                // Also for definitions that are never read, which still write to the local
+                var interval = intervals.computeIfAbsent(def, v -> new Interval(Integer.MAX_VALUE, 0));
+                interval.add(2 * i + 1);
+                interval.weight += weight;
+                interval.accesses++;
+            }
         }
-        return Optional.empty();
+
+        return intervals;
     }
 
-    private static List<Operand> getUses(Instruction ins) {
-        List<Operand> uses = new ArrayList<>();
+    /**
+     * @return the successors of each instruction, by index
+     */
+    private static List<List<Integer>> getSuccessors(Method m) {
+        List<Instruction> code = m.getInstructions();
+        var index = getIndexes(m);
 
-        if (ins instanceof AssignInstruction ai) {
-            Instruction rhsIns = ai.getRhs();
+        var successors = new ArrayList<List<Integer>>();
+        for (int i = 0; i < code.size(); i++) {
+            var ins = code.get(i);
+            var succ = new ArrayList<Integer>();
 
-            if (rhsIns instanceof org.specs.comp.ollir.inst.BinaryOpInstruction bi) {
-                Element l = bi.getLeftOperand(), r = bi.getRightOperand();
-                if (l instanceof Operand) uses.add((Operand) l);
-                if (r instanceof Operand) uses.add((Operand) r);
+            var target = getBranchTarget(m, ins, index);
+            if (target != null) succ.add(target);
 
-            } else if (rhsIns instanceof org.specs.comp.ollir.inst.UnaryOpInstruction ui) {
-                Element o = ui.getOperand();
-                if (o instanceof Operand) uses.add((Operand) o);
+            boolean fallsThrough = !(ins instanceof GotoInstruction) && !(ins instanceof ReturnInstruction);
+            if (fallsThrough && i + 1 < code.size()) succ.add(i + 1);
 
-            } else if (rhsIns instanceof CallInstruction ci) {
-                for (Element e : ci.getOperands()) {
-                    if (e instanceof Operand) uses.add((Operand) e);
-                }
-            }
-        }
-        else if (ins instanceof BinaryOpInstruction bi) {
-            Element l = bi.getLeftOperand(), r = bi.getRightOperand();
-            if (l instanceof Operand) uses.add((Operand) l);
-            if (r instanceof Operand) uses.add((Operand) r);
+            successors.add(succ);
         }
-        else if (ins instanceof UnaryOpInstruction ui) {
-            Element o = ui.getOperand();
-            if (o instanceof Operand) uses.add((Operand) o);
+
+        return successors;
+    }
+
+    /**
+     * Loops are found by their jumps back, every instruction between the target of the jump and the jump is in the
+     * loop.
+     *
+     * @return the number of loops around each instruction
+     */
+    private static int[] getLoopDepths(Method m) {
+        List<Instruction> code = m.getInstructions();
+        var index = getIndexes(m);
+        var depths = new int[code.size()];
+
+        for (int i = 0; i < code.size(); i++) {
+            var target = getBranchTarget(m, code.get(i), index);
+            if (target == null || target > i) continue;
+
+            for (int j = target; j <= i; j++) depths[j]++;
         }
-        else if (ins instanceof CallInstruction ci) {
-            for (Element e : ci.getOperands()) {
-                if (e instanceof Operand) uses.add((Operand) e);
-            }
+
+        return depths;
+    }
+
+    private static Map<Instruction, Integer> getIndexes(Method m) {
+        var index = new IdentityHashMap<Instruction, Integer>();
+        List<Instruction> code = m.getInstructions();
+        for (int i = 0; i < code.size(); i++) index.put(code.get(i), i);
+        return index;
+    }
+
+    private static Integer getBranchTarget(Method m, Instruction ins, Map<Instruction, Integer> index) {
+        String label = null;
+        if (ins instanceof GotoInstruction gi) label = gi.getLabel();
+        if (ins instanceof CondBranchInstruction cb) label = cb.getLabel();
+        if (label == null) return null;
+
+        var target = m.getLabels().get(label);
+        return target != null ? index.get(target) : null;
+    }
+
+    /**
+     * @return the variable written by the instruction, or null if it does not write to a variable
+     */
+    private static String getDef(Instruction ins) {
+        if (ins instanceof AssignInstruction ai
+                && ai.getDest() instanceof Operand dest
+                && !(dest instanceof ArrayOperand)) {
+            return getOperandName(dest);
         }
-        else if (ins instanceof ReturnInstruction ri && ri.hasReturnValue()) {
-            ri.getOperand().ifPresent(o -> {
-                if (o instanceof Operand) uses.add((Operand) o);
-            });
+        return null;
+    }
+
+    /**
+     * Adds the variables read by the instruction, which are all its operands except for the one it writes. Array
+     * stores read the array and the index.
+     */
+    private static void collectUses(TreeNode node, Set<String> uses) {
+        if (node instanceof AssignInstruction ai) {
+            if (ai.getDest() instanceof ArrayOperand dest) collectUses(dest, uses);
+            collectUses(ai.getRhs(), uses);
+            return;
         }
 
-        return uses;
+        if (node instanceof Operand operand) uses.add(getOperandName(operand));
+
+        for (var child : node.getChildren()) {
+            collectUses(child, uses);
+        }
     }
+
     private static String getOperandName(Operand op) {
         try {
             return op.getName();
@@ -186,4 +497,4 @@ public class RegisterAllocator {
             return op.toString();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Strength reduction of induction variables in counted loops.
+ * <p>
+ * In the loops recognized by {@link CountedLoop}, a product 'i * f' of the counter i and a loop invariant f, such as
+ * the 'i * 2' of 'a[i * 2 + 1]', is a derived induction variable: it changes by f * c when i changes by c. Each one is
+ * kept in a new variable, computed once before the loop and then updated with an addition at the end of each
+ * iteration, so the multiplication is removed from the loop.
+ * <p>
+ * If, after that, the counter is only used to end the loop, and the loop starts and ends at constants, the exit test
+ * is rewritten to use one of the new variables and the counter is removed.
+ * <p>
+ * Runs before {@link LoopUnroller}, so each copy of an unrolled body updates the new variables with an addition
+ * instead of repeating the multiplication.
+ */
+public class StrengthReduction {
+
+    /**
+     * Prefix of the variables that hold derived induction variables.
+     */
+    private static final String PREFIX = "iv_";
+
+    private static final Pattern MULTIPLY = Pattern.compile(
+            "(\\w+)\\.i32 :=\\.i32 (-?\\w+)\\.i32 \\*\\.i32 (-?\\w+)\\.i32;");
+
+    /**
+     * @param body OLLIR code of the body of a method
+     * @return the code with the derived induction variables of counted loops reduced
+     */
+    public static String reduce(String body) {
+        var lines = OptUtils.getLines(body);
+        var code = new ArrayList<String>();
+
+        int i = 0;
+        while (i < lines.size()) {
+            var loop = CountedLoop.match(lines, i);
+            if (loop == null || !reduce(loop, lines, code)) {
+                code.add(lines.get(i++));
+                continue;
+            }
+            i = loop.end();
+        }
+
+        return OptUtils.joinLines(code);
+    }
+
+    /**
+     * Adds the loop, with its derived induction variables reduced.
+     *
+     * @return true if the loop was changed
+     */
+    private static boolean reduce(CountedLoop loop, List<String> lines, List<String> code) {
+        var counter = loop.counter();
+        var body = new ArrayList<>(loop.bodyWithoutIncrement());
+
+        // Derived variables, by factor, shared by all the products with the same factor
+        Map<String, String> derived = new LinkedHashMap<>();
+        for (int i = 0; i < body.size(); i++) {
+            var multiply = MULTIPLY.matcher(body.get(i));
+            if (!multiply.matches()) {
+                continue;
+            }
+
+            var dest = multiply.group(1);
+            String factor;
+            if (multiply.group(2).equals(counter)) {
+                factor = multiply.group(3);
+            } else if (multiply.group(3).equals(counter)) {
+                factor = multiply.group(2);
+            } else {
+                continue;
+            }
+
+            if (!isInvariant(factor, loop) || dest.equals(counter)) {
+                continue;
+            }
+
+            var variable = derived.get(factor);
+            if (variable == null) {
+                variable = OptUtils.getUnusedName(PREFIX + dest, lines);
+                derived.put(factor, variable);
+            }
+            body.set(i, dest + ".i32 :=.i32 " + variable + ".i32;");
+        }
+
+        if (derived.isEmpty()) {
+            return false;
+        }
+
+        // The exit test uses the first derived variable with a constant positive factor, if the counter is not needed
+        var eliminated = getEliminated(loop, derived, body, lines, code);
+        var init = eliminated != null ? CountedLoop.findInit(counter, code) : null;
+        if (init != null) {
+            removeInit(counter, code);
+        }
+
+        // Before the loop, each derived variable is set from the counter, or from its initial value if it was removed,
+        // and, for variable factors, the value of each step is computed
+        Map<String, String> steps = new LinkedHashMap<>();
+        for (var entry : derived.entrySet()) {
+            var factor = entry.getKey();
+            var variable = entry.getValue();
+
+            if (init != null && CountedLoop.isConstant(factor)) {
+                int value = (int) (Long.parseLong(init) * Long.parseLong(factor));
+                code.add(variable + ".i32 :=.i32 " + value + ".i32;");
+            } else {
+                var start = init != null ? init : counter;
+                code.add(variable + ".i32 :=.i32 " + start + ".i32 *.i32 " + factor + ".i32;");
+            }
+
+            if (CountedLoop.isConstant(factor)) {
+                steps.put(variable, (int) (Long.parseLong(factor) * loop.increment()) + ".i32");
+            } else if (loop.increment() == 1) {
+                steps.put(variable, factor + ".i32");
+            } else {
+                var step = OptUtils.getUnusedName(variable + "_step", lines);
+                code.add(step + ".i32 :=.i32 " + factor + ".i32 *.i32 " + loop.increment() + ".i32;");
+                steps.put(variable, step + ".i32");
+            }
+        }
+
+        code.add(loop.condLabel() + ":");
+        if (eliminated != null) {
+            long limit = Long.parseLong(loop.bound()) * Long.parseLong(getFactor(derived, eliminated));
+            code.add("if (" + eliminated + ".i32 " + (loop.inclusive() ? "<=" : "<") + ".bool " + limit + ".i32) goto "
+                    + loop.bodyLabel() + ";");
+        } else {
+            code.add(lines.get(loop.start() + 1));
+        }
+        code.addAll(lines.subList(loop.start() + 2, loop.start() + 4));
+        code.addAll(body);
+
+        // The variable of the exit test is updated last, like a counter
+        steps.forEach((variable, step) -> {
+            if (!variable.equals(eliminated)) {
+                code.add(variable + ".i32 :=.i32 " + variable + ".i32 +.i32 " + step + ";");
+            }
+        });
+        if (eliminated != null) {
+            code.add(eliminated + ".i32 :=.i32 " + eliminated + ".i32 +.i32 " + steps.get(eliminated) + ";");
+        } else {
+            code.addAll(loop.body().subList(loop.body().size() - loop.incrementSize(), loop.body().size()));
+        }
+
+        code.addAll(lines.subList(loop.end() - 2, loop.end()));
+        return true;
+    }
+
+    /**
+     * The counter can be removed if it is only used by the loop test and increment, and set to a constant before the
+     * loop, and if the loop has a constant bound and a derived variable with a positive constant factor that does not
+     * overflow.
+     *
+     * @return the derived variable that replaces the counter in the exit test, or null
+     */
+    private static String getEliminated(CountedLoop loop, Map<String, String> derived, List<String> body,
+                                        List<String> lines, List<String> code) {
+        var counter = loop.counter();
+        var init = CountedLoop.findInit(counter, code);
+        if (init == null || !loop.hasConstantBound() || OptUtils.isUsed(counter, body)) {
+            return null;
+        }
+
+        // Besides the loop, the counter can only be used by its initialization
+        var outside = new ArrayList<>(lines.subList(0, loop.start()));
+        outside.addAll(lines.subList(loop.end(), lines.size()));
+        if (outside.stream().filter(line -> OptUtils.isUsed(counter, List.of(line))).count() != 1) {
+            return null;
+        }
+
+        // The counter goes from its initial value to, at most, the bound plus the increment
+        long first = Long.parseLong(init);
+        long last = Long.parseLong(loop.bound()) + loop.increment();
+        for (var entry : derived.entrySet()) {
+            if (!CountedLoop.isConstant(entry.getKey())) {
+                continue;
+            }
+
+            long factor = Long.parseLong(entry.getKey());
+            if (factor > 0 && fitsInt(first * factor) && fitsInt(last * factor)
+                    && fitsInt(Long.parseLong(loop.bound()) * factor)) {
+                return entry.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private static String getFactor(Map<String, String> derived, String variable) {
+        return derived.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(variable))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Removes the last write of the variable from the straight-line code at the end of the given code.
+     */
+    private static void removeInit(String variable, List<String> code) {
+        for (int i = code.size() - 1; i >= 0 && !CountedLoop.isControlFlow(code.get(i)); i--) {
+            if (CountedLoop.isAssigned(code.get(i), variable)) {
+                code.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the operand is a constant or a variable that is not written by the body of the loop
+     */
+    private static boolean isInvariant(String operand, CountedLoop loop) {
+        if (CountedLoop.isConstant(operand)) {
+            return true;
+        }
+
+        return !operand.equals(loop.counter())
+                && loop.body().stream().noneMatch(line -> CountedLoop.isAssigned(line, operand));
+    }
+
+    private static boolean fitsInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+}
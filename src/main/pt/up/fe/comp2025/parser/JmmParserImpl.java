@@ -1,15 +1,20 @@
 package pt.up.fe.comp2025.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
-import pt.up.fe.comp2025.JavammLexer;
-import pt.up.fe.comp2025.JavammParser;
+import pt.up.fe.comp2025.ast.CompactAst;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
 
+import java.io.File;
 import java.util.Map;
 
 /**
@@ -34,18 +39,87 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
+
+    /**
+     * Parses a source file without reading it into a String, see {@link MappedCharStream}.
+     *
+     * @param jmmFile
+     * @param config
+     * @return
+     */
+    public JmmParserResult parse(File jmmFile, Map<String, String> config) {
+        return parse(MappedCharStream.map(jmmFile), getDefaultRule(), config);
+    }
+
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
+        try (var scope = CompilerMetrics.measure("parse")) {
+            var result = parseTwoStage(input, startingRule, config);
 
+            scope.count("characters", input.size());
+            if (scope.isEnabled() && result.getRootNode() != null) {
+                scope.count("nodes", CompactAst.countNodes(result.getRootNode()));
+            }
+
+            return result;
+        }
+    }
+
+    private JmmParserResult parseTwoStage(CharStream input, String startingRule, Map<String, String> config) {
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new JavammParser(tokens);
+            // Two-stage parsing: the faster SLL prediction succeeds for almost every input, full LL is only needed
+            // when SLL fails, either because of a syntax error or because the input needs the stronger prediction.
+            // Since SLL never accepts an input that LL rejects, the result and the reports are the same as always
+            // parsing with LL.
+            try {
+                return parse(input, startingRule, config, true);
+            } catch (RuntimeException e) {
+                if (!isParseCancellation(e)) {
+                    throw e;
+                }
+            }
 
+            return parse(input, startingRule, config, false);
 
+        } catch (Exception e) {
+            // There was an uncaught exception during parsing, create an error JmmParserResult without root node
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+        }
+    }
+
+    /**
+     * Parses the code with a single prediction mode.
+     *
+     * @param jmmCode
+     * @param startingRule
+     * @param config
+     * @param sll          if true, uses SLL prediction and bails out with a {@link ParseCancellationException} at the
+     *                     first syntax error, otherwise uses full LL prediction with the default error recovery
+     * @return
+     */
+    public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config, boolean sll) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config, sll);
+    }
+
+    private JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config, boolean sll) {
+        // The same input is read again when the first stage fails
+        input.seek(0);
+        // Lexer, token stream and parser of this thread, reset to read the input
+        var recognizers = ParserPool.acquire(input);
+        var lex = recognizers.getLexer();
+        var parser = recognizers.getParser();
+
+        if (sll) {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+        } else {
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+        }
+
+        try {
             // Convert ANTLR CST to JmmNode AST
             var r = AntlrParser.parse(lex, parser, startingRule, config);
 
@@ -54,10 +128,20 @@ public class JmmParserImpl implements JmmParser {
             //}
 
             return r;
+        } finally {
+            ParserPool.release(recognizers);
+        }
+    }
 
-        } catch (Exception e) {
-            // There was an uncaught exception during parsing, create an error JmmParserResult without root node
-            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+    /**
+     * The parser rule is invoked through reflection, so the exception thrown by the bail out strategy arrives wrapped.
+     */
+    private static boolean isParseCancellation(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ParseCancellationException) {
+                return true;
+            }
         }
+        return false;
     }
 }
@@ -0,0 +1,125 @@
+package pt.up.fe.comp2025.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A character stream that reads a source file through a memory-mapped buffer.
+ * <p>
+ * J-- sources are ASCII, so each byte is a character and no decoding is needed. The file is never copied into a
+ * String or a char[], the lexer reads the mapped pages directly and only the text of each token is materialized.
+ * Bytes outside the ASCII range are read as ISO-8859-1.
+ */
+public class MappedCharStream implements CharStream {
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final String sourceName;
+
+    private int position;
+
+    public MappedCharStream(ByteBuffer buffer, String sourceName) {
+        this.buffer = buffer;
+        this.size = buffer.limit();
+        this.sourceName = sourceName;
+    }
+
+    /**
+     * Maps the given file into memory. The mapping stays valid after the channel is closed.
+     *
+     * @param file
+     * @return
+     */
+    public static MappedCharStream map(File file) {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new RuntimeException("File '" + file + "' is too large to be parsed (" + length + " bytes)");
+            }
+
+            return new MappedCharStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), file.getPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not map file '" + file + "'", e);
+        }
+    }
+
+    @Override
+    public void consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0;
+        }
+
+        // LA(1) is the current character, LA(-1) the previous one
+        int index = i > 0 ? position + i - 1 : position + i;
+        if (index < 0 || index >= size) {
+            return IntStream.EOF;
+        }
+
+        return buffer.get(index) & 0xFF;
+    }
+
+    @Override
+    public int mark() {
+        // The whole input is always available, there is nothing to buffer
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = Math.min(Math.max(index, 0), size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, size - 1);
+        if (start > stop) {
+            return "";
+        }
+
+        var chars = new char[stop - start + 1];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (buffer.get(start + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
@@ -0,0 +1,87 @@
+package pt.up.fe.comp2025.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.ATNState;
+import pt.up.fe.comp2025.JavammLexer;
+import pt.up.fe.comp2025.JavammParser;
+
+/**
+ * Keeps one lexer and one parser per thread, reused across parses. The token stream is created for each parse, since
+ * in this version of ANTLR a CommonTokenStream does not fully reset when given a new token source.
+ * <p>
+ * The DFAs and the prediction context cache built while parsing are static fields of the generated JavammLexer and
+ * JavammParser, so every instance shares them and a long-running process only pays for the warm-up once. The ANTLR
+ * runtime synchronizes the updates to these caches, and reads of states already in the DFA take no locks, so
+ * concurrent parses only contend while the caches are still growing. Keeping the instances per thread means a
+ * recognizer is never used by two parses at the same time.
+ */
+public class ParserPool {
+
+    private static final ThreadLocal<Recognizers> RECOGNIZERS = ThreadLocal.withInitial(Recognizers::new);
+
+    /**
+     * The lexer and parser of the current thread.
+     */
+    public static class Recognizers {
+        private final JavammLexer lexer;
+        private final JavammParser parser;
+
+        private Recognizers() {
+            lexer = new JavammLexer(emptyInput());
+            parser = new JavammParser(new CommonTokenStream(lexer));
+        }
+
+        public JavammLexer getLexer() {
+            return lexer;
+        }
+
+        public JavammParser getParser() {
+            return parser;
+        }
+    }
+
+    /**
+     * Resets the recognizers of the current thread so that they read the given input.
+     *
+     * @param input
+     * @return
+     */
+    public static Recognizers acquire(CharStream input) {
+        var recognizers = RECOGNIZERS.get();
+        reset(recognizers, input);
+        return recognizers;
+    }
+
+    /**
+     * Drops the references to the last input and its tokens, which would otherwise be kept until the next parse on
+     * this thread.
+     *
+     * @param recognizers
+     */
+    public static void release(Recognizers recognizers) {
+        reset(recognizers, emptyInput());
+    }
+
+    /**
+     * Discards the shared DFAs of the lexer and parser, so that the next parse starts cold. Only meant for benchmarks.
+     */
+    public static void clearDfa() {
+        var recognizers = RECOGNIZERS.get();
+        recognizers.lexer.getInterpreter().clearDFA();
+        recognizers.parser.getInterpreter().clearDFA();
+    }
+
+    private static CharStream emptyInput() {
+        return new ANTLRInputStream("");
+    }
+
+    private static void reset(Recognizers recognizers, CharStream input) {
+        recognizers.lexer.setInputStream(input);
+        recognizers.parser.setTokenStream(new CommonTokenStream(recognizers.lexer));
+        // Not cleared by reset, a parse that bailed out leaves the state where it stopped, which would become the
+        // invoking state of the next root context
+        recognizers.parser.setState(ATNState.INVALID_STATE_NUMBER);
+    }
+}
@@ -0,0 +1,269 @@
+package pt.up.fe.comp2025.synthetic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates valid J-- programs of configurable size, used as inputs for benchmarks and stress tests.
+ * <p>
+ * The same seed and options always produce the same program. Generated programs only use int and int[] values, have
+ * no imports and always terminate: loops are counted, methods only call methods declared before them and array
+ * indexes are always in bounds.
+ */
+public class ProgramGenerator {
+
+    /**
+     * Size of the arrays declared by each method, loops never run more iterations than this.
+     */
+    private static final int ARRAY_SIZE = 16;
+
+    /**
+     * Controls the shape of the generated programs.
+     *
+     * @param methods            number of methods of the class, besides main
+     * @param statements         statements in each block
+     * @param statementDepth     maximum nesting of if and while statements
+     * @param expressionDepth    maximum nesting of binary expressions
+     * @param loopDensity        probability of a compound statement being a while loop instead of an if
+     * @param variables          int locals declared by each method
+     * @param arrays             if the methods use an int[] local
+     */
+    public record Options(int methods, int statements, int statementDepth, int expressionDepth, double loopDensity,
+                          int variables, boolean arrays) {
+
+        public static Options getDefault() {
+            return new Options(4, 4, 2, 2, 0.3, 4, true);
+        }
+
+        /**
+         * @param scale a positive factor, the size of the program grows linearly with it
+         * @return the default options with scale times more methods
+         */
+        public static Options scaled(int scale) {
+            var options = getDefault();
+            return new Options(options.methods() * scale, options.statements(), options.statementDepth(),
+                    options.expressionDepth(), options.loopDensity(), options.variables(), options.arrays());
+        }
+    }
+
+    private final Options options;
+    private final Random random;
+
+    private final StringBuilder code = new StringBuilder();
+    private int indentation;
+
+    // State of the method being generated
+    private int currentMethod;
+    private int loopDepth;
+    private boolean callAllowed;
+
+    public ProgramGenerator(long seed, Options options) {
+        this.options = options;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param className the name of the generated class
+     * @return the code of the program
+     */
+    public String generate(String className) {
+        code.setLength(0);
+        indentation = 0;
+
+        line("class " + className + " {");
+        indentation++;
+
+        for (int i = 0; i < options.methods(); i++) {
+            generateMethod(i);
+        }
+
+        generateMain(className);
+
+        indentation--;
+        line("}");
+
+        return code.toString();
+    }
+
+    private void generateMethod(int index) {
+        currentMethod = index;
+        loopDepth = 0;
+        // Each method calls at most one other method, so that a call never runs more than a chain of calls
+        callAllowed = index > 0;
+
+        line("public int " + methodName(index) + "(int p0, int p1) {");
+        indentation++;
+
+        for (int i = 0; i < options.variables(); i++) {
+            line("int v" + i + ";");
+        }
+        for (int i = 0; i < options.statementDepth(); i++) {
+            line("int i" + i + ";");
+        }
+        if (options.arrays()) {
+            line("int[] a;");
+        }
+
+        // Variables are initialized before any statement can read them
+        for (int i = 0; i < options.variables(); i++) {
+            line("v" + i + " = " + random.nextInt(10) + ";");
+        }
+        if (options.arrays()) {
+            line("a = new int[" + ARRAY_SIZE + "];");
+        }
+
+        generateStatements(0);
+
+        line("return " + intExpr(options.expressionDepth()) + ";");
+
+        indentation--;
+        line("}");
+    }
+
+    private void generateMain(String className) {
+        line("public static void main(String[] args) {");
+        indentation++;
+
+        line(className + " c;");
+        line("int r;");
+        line("c = new " + className + "();");
+        line("r = 0;");
+        for (int i = 0; i < options.methods(); i++) {
+            line("r = r + c." + methodName(i) + "(" + random.nextInt(10) + ", " + random.nextInt(10) + ");");
+        }
+
+        indentation--;
+        line("}");
+    }
+
+    private void generateStatements(int depth) {
+        for (int i = 0; i < options.statements(); i++) {
+            generateStatement(depth);
+        }
+    }
+
+    private void generateStatement(int depth) {
+        if (depth < options.statementDepth() && random.nextInt(3) == 0) {
+            if (random.nextDouble() < options.loopDensity()) {
+                generateWhile(depth);
+            } else {
+                generateIf(depth);
+            }
+            return;
+        }
+
+        if (options.arrays() && random.nextInt(4) == 0) {
+            line("a[" + arrayIndex() + "] = " + intExpr(options.expressionDepth()) + ";");
+            return;
+        }
+
+        line(variable() + " = " + intExpr(options.expressionDepth()) + ";");
+    }
+
+    private void generateIf(int depth) {
+        line("if (" + boolExpr(options.expressionDepth()) + ") {");
+        indentation++;
+        generateStatements(depth + 1);
+        indentation--;
+        line("} else {");
+        indentation++;
+        generateStatements(depth + 1);
+        indentation--;
+        line("}");
+    }
+
+    private void generateWhile(int depth) {
+        // Loop counters are only assigned here, the bound never exceeds the size of the arrays
+        var counter = "i" + loopDepth;
+        var bound = options.arrays() && random.nextBoolean() ? "a.length" : Integer.toString(1 + random.nextInt(ARRAY_SIZE));
+
+        line(counter + " = 0;");
+        line("while (" + counter + " < " + bound + ") {");
+        indentation++;
+
+        loopDepth++;
+        generateStatements(depth + 1);
+        loopDepth--;
+
+        line(counter + " = " + counter + " + 1;");
+        indentation--;
+        line("}");
+    }
+
+    private String intExpr(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return intLeaf();
+        }
+
+        return switch (random.nextInt(6)) {
+            case 0, 1 -> intExpr(depth - 1) + " + " + intExpr(depth - 1);
+            case 2 -> intExpr(depth - 1) + " - " + intExpr(depth - 1);
+            case 3 -> "(" + intExpr(depth - 1) + ") * " + intLeaf();
+            // Only divides by positive constants
+            case 4 -> "(" + intExpr(depth - 1) + ") / " + (1 + random.nextInt(9));
+            default -> call(depth);
+        };
+    }
+
+    private String call(int depth) {
+        // Calls inside loops would make the running time grow exponentially with the number of methods
+        if (!callAllowed || loopDepth > 0) {
+            return intLeaf();
+        }
+
+        callAllowed = false;
+        return "this." + methodName(random.nextInt(currentMethod)) + "(" + intExpr(depth - 1) + ", " + intLeaf() + ")";
+    }
+
+    private String intLeaf() {
+        return switch (random.nextInt(options.arrays() ? 5 : 3)) {
+            case 0 -> Integer.toString(random.nextInt(100));
+            case 1 -> "p" + random.nextInt(2);
+            case 2 -> variable();
+            case 3 -> "a[" + arrayIndex() + "]";
+            default -> "a.length";
+        };
+    }
+
+    private String boolExpr(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return compare();
+        }
+
+        return switch (random.nextInt(4)) {
+            case 0 -> boolExpr(depth - 1) + " && " + boolExpr(depth - 1);
+            case 1 -> boolExpr(depth - 1) + " || " + boolExpr(depth - 1);
+            case 2 -> "!(" + boolExpr(depth - 1) + ")";
+            default -> compare();
+        };
+    }
+
+    private String compare() {
+        var operators = List.of("<", ">", "<=", ">=", "==", "!=");
+        return intLeaf() + " " + operators.get(random.nextInt(operators.size())) + " " + intLeaf();
+    }
+
+    private String arrayIndex() {
+        // Counters of enclosing loops are always below the array size
+        var indexes = new ArrayList<String>();
+        for (int i = 0; i < loopDepth; i++) {
+            indexes.add("i" + i);
+        }
+        indexes.add(Integer.toString(random.nextInt(ARRAY_SIZE)));
+
+        return indexes.get(random.nextInt(indexes.size()));
+    }
+
+    private String variable() {
+        return "v" + random.nextInt(options.variables());
+    }
+
+    private static String methodName(int index) {
+        return "m" + index;
+    }
+
+    private void line(String text) {
+        code.append("    ".repeat(indentation)).append(text).append("\n");
+    }
+}
@@ -0,0 +1,62 @@
+package pt.up.fe.comp2025.utils;
+
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs independent pieces of work, such as the methods of a class, on several threads.
+ */
+public class ParallelUtils {
+
+    /**
+     * Applies the function to each item, using a ForkJoinPool with the given number of threads. The results are in the
+     * same order as the items, whatever the order in which they finish.
+     * <p>
+     * With a single thread, or a single item, everything runs in the current thread. Metrics being collected in the
+     * current thread also receive the measurements made by the other threads.
+     *
+     * @param items
+     * @param threads
+     * @param function
+     * @return
+     */
+    public static <T, R> List<R> map(List<T> items, int threads, Function<T, R> function) {
+        if (threads <= 1 || items.size() <= 1) {
+            return items.stream().map(function).toList();
+        }
+
+        var metrics = CompilerMetrics.current();
+        var pool = new ForkJoinPool(Math.min(threads, items.size()));
+
+        try {
+            var futures = new ArrayList<Future<R>>();
+            for (var item : items) {
+                futures.add(pool.submit(() -> metrics
+                        .map(m -> CompilerMetrics.collectInto(m, () -> function.apply(item)))
+                        .orElseGet(() -> function.apply(item))));
+            }
+
+            var results = new ArrayList<R>();
+            for (var future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for parallel work", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
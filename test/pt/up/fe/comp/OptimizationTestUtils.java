@@ -0,0 +1,110 @@
+package pt.up.fe.comp;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.optimization.GeneratedOllirResult;
+import pt.up.fe.comp2025.optimization.OllirGeneratorVisitor;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Helpers for the tests of the optimizations and of the backend, which compile programs that print with ioPlus.
+ * <p>
+ * ioPlus is reported as undeclared by the symbol table checks, so these helpers do not verify the analysis reports.
+ */
+public class OptimizationTestUtils {
+
+    private static final Pattern LOOP_BODY = Pattern.compile("^\\s*body\\d+:", Pattern.MULTILINE);
+    private static final Pattern LOOP_END = Pattern.compile("^\\s*endwhile\\d+:", Pattern.MULTILINE);
+
+    /**
+     * Generates OLLIR directly, without the optimizations of the AST, for the tests of the optimizations of OLLIR.
+     *
+     * @param code
+     * @param config
+     * @return the OLLIR code, with the temporaries created by the generator
+     */
+    public static OllirResult generate(String code, Map<String, String> config) {
+        var semanticsResult = TestUtils.analyse(code, config);
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), config);
+        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+        return new GeneratedOllirResult(semanticsResult, ollirCode, Collections.emptyList(), visitor.getTemporaries());
+    }
+
+    /**
+     * Runs every stage up to the optimizations of OLLIR.
+     *
+     * @param code
+     * @param config
+     * @return
+     */
+    public static OllirResult optimize(String code, Map<String, String> config) {
+        return TestUtils.optimize(code, config, false);
+    }
+
+    /**
+     * Compiles each result to Jasmin and checks that it prints the expected output, running the code exactly as the
+     * backend generated it.
+     *
+     * @param expectedOutput
+     * @param results        builds of the same program, for example with and without an optimization
+     */
+    public static void assertExecutes(String expectedOutput, OllirResult... results) {
+        for (var result : results) {
+            CpUtils.runJasmin(TestUtils.backend(result), expectedOutput);
+        }
+    }
+
+    /**
+     * Like {@link #assertExecutes}, but runs the compiled class with the java command, as programs are run outside of
+     * the tests.
+     *
+     * @param expectedOutput
+     * @param result
+     */
+    public static void assertExecutesInNewJvm(String expectedOutput, OllirResult result) {
+        var jasminResult = TestUtils.backend(result);
+        var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+        assertEquals(jasminResult.getJasminCode(), expectedOutput, output);
+    }
+
+    /**
+     * @return the code of the given method, static or not, up to its closing brace
+     */
+    public static String getMethodCode(OllirResult ollirResult, String methodName) {
+        var code = ollirResult.getOllirCode();
+        var start = code.indexOf(".method public " + methodName + "(");
+        if (start < 0) {
+            start = code.indexOf(".method public static " + methodName + "(");
+        }
+        return code.substring(start, code.indexOf("}", start));
+    }
+
+    /**
+     * @return the code of the body of the first while loop of the given method
+     */
+    public static String getLoopBody(OllirResult ollirResult, String methodName) {
+        var method = getMethodCode(ollirResult, methodName);
+        var body = LOOP_BODY.matcher(method);
+        var end = LOOP_END.matcher(method);
+        if (!body.find() || !end.find(body.end())) {
+            throw new RuntimeException("Method '" + methodName + "' has no while loop");
+        }
+        return method.substring(body.start(), end.start()).strip();
+    }
+
+    /**
+     * @return the Jasmin code of the given method, static or not, up to its '.end method'
+     */
+    public static String getJasminMethodCode(String jasminCode, String methodName) {
+        var start = jasminCode.indexOf(".method public " + methodName + "(");
+        if (start < 0) {
+            start = jasminCode.indexOf(".method public static " + methodName + "(");
+        }
+        return jasminCode.substring(start, jasminCode.indexOf(".end method", start));
+    }
+}
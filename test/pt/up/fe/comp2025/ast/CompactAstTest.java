@@ -0,0 +1,103 @@
+package pt.up.fe.comp2025.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactAstTest {
+
+    private static List<JmmNode> preorder(JmmNode node, List<JmmNode> nodes) {
+        nodes.add(node);
+        for (var child : node.getChildren()) {
+            preorder(child, nodes);
+        }
+        return nodes;
+    }
+
+    @Test
+    public void sameTreeAsJmmNodes() {
+        for (var file : SpecsIo.getFilesRecursive(new File("test"), "jmm")) {
+            var result = TestUtils.parse(SpecsIo.read(file));
+            if (result.getRootNode() == null) {
+                continue;
+            }
+
+            var nodes = preorder(result.getRootNode(), new ArrayList<>());
+            var ast = CompactAst.from(result.getRootNode());
+            assertEquals(file.getPath(), nodes.size(), ast.size());
+
+            for (int i = 0; i < nodes.size(); i++) {
+                var node = nodes.get(i);
+                assertEquals(node.getKind(), ast.getKind(i).getNodeName());
+                assertEquals(node.getNumChildren(), ast.getNumChildren(i));
+                assertEquals(node.getLine(), ast.getLine(i));
+                if (node.getParent() != null) {
+                    assertSame(node.getParent(), nodes.get(ast.getParent(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void typedValues() {
+        var code = "class A extends B { public static int f(int[] a) { return this.g(-3, true) + a.length; } }";
+        var ast = CompactAst.from(TestUtils.parse(code).getRootNode());
+        var symbols = ast.getSymbols();
+
+        int classDecl = ast.getChild(0, 0);
+        assertEquals(Kind.CLASS_DECL, ast.getKind(classDecl));
+        assertEquals("A", symbols.getName(ast.getSymbol(classDecl)));
+        assertEquals("B", symbols.getName(ast.getSuperClass(classDecl)));
+
+        int method = ast.getChild(classDecl, 0);
+        assertTrue(ast.hasFlag(method, CompactAst.FLAG_PUBLIC));
+        assertTrue(ast.hasFlag(method, CompactAst.FLAG_STATIC));
+
+        List<Integer> ints = new ArrayList<>();
+        List<Boolean> booleans = new ArrayList<>();
+        for (int node = 0; node < ast.size(); node++) {
+            switch (ast.getKind(node)) {
+                case INT -> ints.add(ast.getInt(node));
+                case BOOLEAN -> booleans.add(ast.getBoolean(node));
+                case ADD_SUB -> assertEquals("+", symbols.getName(ast.getSymbol(node)));
+                case METHOD_CALL -> assertEquals("g", symbols.getName(ast.getSymbol(node)));
+                case TYPE -> assertEquals(symbols.getName(ast.getSymbol(node)).equals("int") && ast.getParent(node) != method,
+                        ast.hasFlag(node, CompactAst.FLAG_ARRAY));
+                default -> {
+                }
+            }
+        }
+        assertEquals(List.of(-3), ints);
+        assertEquals(List.of(true), booleans);
+
+        // The same name is always the same symbol
+        assertEquals(symbols.find("a"), symbols.intern("a"));
+        assertEquals(CompactAst.NONE, symbols.find("missing"));
+    }
+
+    @Test
+    public void outOfRangeIntKeptAsText() {
+        var code = "class A { public int f() { int a; a = 3000000000; return 2147483647; } }";
+        var ast = CompactAst.from(TestUtils.parse(code).getRootNode());
+
+        List<String> literals = new ArrayList<>();
+        for (int node = 0; node < ast.size(); node++) {
+            if (ast.getKind(node) == Kind.INT) {
+                literals.add(ast.getLiteral(node));
+                assertEquals(ast.getLiteral(node).equals("3000000000"), ast.hasFlag(node, CompactAst.FLAG_OUT_OF_RANGE));
+            }
+        }
+        assertEquals(List.of("3000000000", "2147483647"), literals);
+
+        var result = TestUtils.analyse(code);
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().stream().anyMatch(report -> report.getMessage().contains("3000000000")));
+    }
+}
@@ -0,0 +1,78 @@
+package pt.up.fe.comp2025.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class KindVisitTableTest {
+
+    /**
+     * Each visit returns the name it was registered with.
+     */
+    private static void register(AJmmVisitor<Void, String> visitor, List<String> kinds) {
+        for (var kind : kinds) {
+            visitor.addVisit(kind, (node, unused) -> kind);
+        }
+        visitor.setDefaultVisit((node, unused) -> "default");
+    }
+
+    private static void assertSameVisits(List<String> kinds) {
+        var reference = new AJmmVisitor<Void, String>() {
+            @Override
+            protected void buildVisitor() {
+                register(this, kinds);
+            }
+        };
+        var table = new KindVisitor<Void, String>() {
+            @Override
+            protected void buildVisitor() {
+                register(this, kinds);
+            }
+        };
+
+        for (var file : SpecsIo.getFilesRecursive(new File("test/pt/up/fe/comp/cp2"), "jmm")) {
+            var root = TestUtils.parse(SpecsIo.read(file)).getRootNode();
+            if (root == null) {
+                continue;
+            }
+
+            for (var node : root.getDescendantsAndSelfStream().toList()) {
+                assertEquals(node.getKind(), reference.visit(node), table.visit(node));
+            }
+        }
+
+        // Nodes created by the optimizer only have their own kind in the hierarchy
+        JmmNode literal = TestUtils.parse("class A { }").getRootNode().copy(Collections.singletonList("Int"));
+        assertEquals(reference.visit(literal), table.visit(literal));
+    }
+
+    @Test
+    public void sameVisitsAsHierarchyLookup() {
+        assertSameVisits(List.of("Id", "Int", "AssignStmt", "MethodDecl", "importDecl"));
+    }
+
+    @Test
+    public void sameVisitsWithRuleVisits() {
+        assertSameVisits(List.of("Id", "Expr", "Stmt", "ClassDecl"));
+    }
+
+    @Test
+    public void findsEveryKindByName() {
+        for (var kind : Kind.values()) {
+            // A new string, as the parser creates for each node
+            assertSame(kind, Kind.find(new String(kind.getNodeName())));
+        }
+        assertNull(Kind.find("importDecl"));
+        assertNull(Kind.find(""));
+    }
+}
@@ -0,0 +1,86 @@
+package pt.up.fe.comp2025.backend;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.getJasminMethodCode;
+
+public class BlockLayoutTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/backend/BlockLayout.jmm";
+
+    private static final String EXPECTED_OUTPUT = "Result: 209\nResult: 21\nResult: -1\nResult: 0\n";
+
+    /**
+     * Programs whose output must not change when their blocks are reordered.
+     */
+    private static final List<String> PROGRAMS = List.of(
+            RESOURCE,
+            "pt/up/fe/comp2025/optimization/BranchConditions.jmm",
+            "pt/up/fe/comp2025/optimization/FieldPromotion.jmm",
+            "pt/up/fe/comp2025/optimization/LoopUnrolling.jmm",
+            "pt/up/fe/comp2025/optimization/StrengthReduction.jmm");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String compile(String resource, Map<String, String> config) {
+        var ollirResult = OptimizationTestUtils.generate(SpecsIo.getResource(resource), config);
+        return TestUtils.backend(ollirResult).getJasminCode();
+    }
+
+    private static String run(String jasminCode) {
+        var output = new InProcessRunner().run(jasminCode, Collections.emptyList());
+        assertEquals(output.getStdErr(), "", output.getStdErr());
+        return output.getStdOut();
+    }
+
+    @Test
+    public void coldBlocksMoveToEnd() {
+        var check = getJasminMethodCode(compile(RESOURCE, Map.of(ConfigOptions.getOptimize(), "true")), "check");
+
+        // The call that reports a negative argument is placed after the return
+        assertTrue(check, check.indexOf("invokestatic ioPlus/printResult") > check.indexOf("ireturn"));
+    }
+
+    @Test
+    public void profileDecidesFallThrough() throws Exception {
+        var profile = new File(folder.getRoot(), "BlockLayout.profile");
+        assertEquals(EXPECTED_OUTPUT, run(compile(RESOURCE,
+                Map.of(ConfigOptions.getProfile(), "instrument=" + profile.getAbsolutePath()))));
+
+        // Without a profile the else block stays first, the profile shows that the then block is the common one
+        var inOrder = getJasminMethodCode(compile(RESOURCE, Map.of()), "skewed");
+        assertTrue(inOrder, inOrder.indexOf("iinc 3 5") < inOrder.indexOf("iinc 4 2"));
+
+        var jasminCode = compile(RESOURCE, Map.of(ConfigOptions.getProfile(), "use=" + profile.getAbsolutePath()));
+        var profiled = getJasminMethodCode(jasminCode, "skewed");
+        assertTrue(profiled, profiled.indexOf("iinc 4 2") < profiled.indexOf("iinc 3 5"));
+        assertEquals(EXPECTED_OUTPUT, run(jasminCode));
+    }
+
+    @Test
+    public void layoutKeepsOutput() {
+        for (var program : PROGRAMS) {
+            var config = new HashMap<String, String>();
+            config.put(ConfigOptions.getUnroll(), "1");
+            var expected = run(compile(program, config));
+
+            config.put(ConfigOptions.getOptimize(), "true");
+            assertEquals(program, expected, run(compile(program, config)));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pt.up.fe.comp2025.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConstantArraysTest {
+
+    /**
+     * A program that sums the elements of the given literal, after changing the first element of a copy, to check
+     * that each evaluation of the literal is a new array.
+     */
+    private static String program(String literal) {
+        return """
+                import ioPlus;
+                class Literals {
+                    public int sum(int[] a) {
+                        int i;
+                        int s;
+                        i = 0;
+                        s = 0;
+                        while (i < a.length) {
+                            s = s + a[i];
+                            i = i + 1;
+                        }
+                        return s;
+                    }
+                    public static void main(String[] args) {
+                        Literals l;
+                        int[] a;
+                        l = new Literals();
+                        a = %s;
+                        a[0] = 1000;
+                        a = %s;
+                        ioPlus.printResult(l.sum(a));
+                    }
+                }
+                """.formatted(literal, literal);
+    }
+
+    private static String compile(String code) {
+        return TestUtils.backend(OptimizationTestUtils.optimize(code, Collections.emptyMap())).getJasminCode();
+    }
+
+    private static String mainMethod(String jasminCode) {
+        return jasminCode.substring(jasminCode.indexOf(".method public static main("));
+    }
+
+    @Test
+    public void largeLiteralHasConstantCode() {
+        var values = IntStream.range(0, 20_000).map(i -> i * 7919).toArray();
+        var literal = IntStream.of(values).mapToObj(Integer::toString).collect(Collectors.joining(", ", "[", "]"));
+
+        var jasminCode = compile(program(literal));
+        // Only the store of 'a[0] = 1000' is left
+        var main = mainMethod(jasminCode);
+        assertEquals(main, 1, main.lines().filter(line -> line.trim().equals("iastore")).count());
+
+        // Both evaluations share the same field
+        assertEquals(1, jasminCode.lines().filter(line -> line.startsWith(".field private static final")).count());
+
+        var output = new InProcessRunner().run(jasminCode, Collections.emptyList());
+        assertEquals(output.getStdErr(), "Result: " + IntStream.of(values).sum() + "\n", output.getStdOut());
+    }
+
+    @Test
+    public void shortLiteralIsStoredByElement() {
+        var jasminCode = compile(program("[1, 2, 3]"));
+        assertTrue(mainMethod(jasminCode).contains("iastore"));
+        assertFalse(jasminCode.contains("<clinit>"));
+
+        var output = new InProcessRunner().run(jasminCode, Collections.emptyList());
+        assertEquals("Result: 6\n", output.getStdOut());
+    }
+
+    @Test
+    public void packSplitsLargeConstants() {
+        // Each value takes 6 bytes in the constant pool, so 40000 values do not fit in a single constant
+        var values = new int[40_000];
+        Arrays.fill(values, -1);
+
+        var literals = ConstantArrays.pack(values);
+        assertEquals(4, literals.size());
+        assertEquals(values.length * 2 * 6, literals.stream().mapToInt(literal -> literal.length() - 2).sum());
+    }
+}
@@ -0,0 +1,103 @@
+package pt.up.fe.comp2025.backend;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InProcessRunnerTest {
+
+    private static String program(String className, String mainBody) {
+        return """
+                .class public %s
+                .super java/lang/Object
+
+                .method public static main([Ljava/lang/String;)V
+                   .limit stack 4
+                   .limit locals 2
+                %s
+                   return
+                .end method
+                """.formatted(className, mainBody);
+    }
+
+    private static String printResult(int value) {
+        return "   ldc " + value + "\n   invokestatic ioPlus/printResult(I)V";
+    }
+
+    @Test
+    public void capturesOutput() {
+        var output = new InProcessRunner().run(program("Print", printResult(42)), Collections.emptyList());
+
+        assertEquals(0, (int) output.getReturnValue());
+        assertEquals("Result: 42\n", output.getStdOut());
+    }
+
+    @Test
+    public void reportsExceptions() {
+        var output = new InProcessRunner().run(program("Fail", "   iconst_1\n   iconst_0\n   idiv\n   pop"),
+                Collections.emptyList());
+
+        assertEquals(1, (int) output.getReturnValue());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("java.lang.ArithmeticException"));
+    }
+
+    /**
+     * @return true if any thread is still running code of the given class
+     */
+    private static boolean isRunning(String className) {
+        return Thread.getAllStackTraces().values().stream()
+                .flatMap(Arrays::stream)
+                .anyMatch(frame -> frame.getClassName().equals(className));
+    }
+
+    @Test
+    public void enforcesTimeout() throws InterruptedException {
+        var runner = new InProcessRunner(List.of(), 200);
+        var output = runner.run(program("Sleep", "   ldc2_w 60000\n   invokestatic java/lang/Thread/sleep(J)V"),
+                Collections.emptyList());
+
+        assertEquals(InProcessRunner.TIMEOUT_RETURN_VALUE, (int) output.getReturnValue());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("did not finish within 200 ms"));
+
+        // The program is interrupted while it waits, so it stops right after the timeout
+        long deadline = System.currentTimeMillis() + 1000;
+        while (isRunning("Sleep") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(isRunning("Sleep"));
+    }
+
+    @Test
+    public void verifiesStackLimits() {
+        // Two operands on a stack of one, which a separate JVM would also reject
+        var code = program("Overflow", "   iconst_1\n   iconst_2\n   iadd\n   pop").replace(".limit stack 4",
+                ".limit stack 1");
+        var output = new InProcessRunner().run(code, Collections.emptyList());
+
+        assertEquals(1, (int) output.getReturnValue());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("VerifyError"));
+    }
+
+    @Test
+    public void parallelRunsAreIsolated() {
+        var programs = new ArrayList<String>();
+        for (int i = 0; i < 16; i++) {
+            // Same class name in every program, each one is loaded by its own class loader
+            programs.add(program("Same", printResult(i)));
+        }
+
+        var outputs = new InProcessRunner(List.of(new File("libs-jmm/compiled")), 5_000).runAll(programs);
+
+        for (int i = 0; i < outputs.size(); i++) {
+            assertEquals("Result: " + i + "\n", outputs.get(i).getStdOut());
+        }
+    }
+}
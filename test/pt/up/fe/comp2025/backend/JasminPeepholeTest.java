@@ -0,0 +1,116 @@
+package pt.up.fe.comp2025.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.optimization.GeneratedOllirResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JasminPeepholeTest {
+
+    private static List<JasminInstruction> code(String... lines) {
+        return Arrays.stream(lines).map(JasminInstruction::parse).collect(Collectors.toList());
+    }
+
+    private static String optimize(String... lines) {
+        return new JasminPeephole().optimize(code(lines), null, Set.of()).stream()
+                .map(JasminInstruction::toString)
+                .collect(Collectors.joining("; "));
+    }
+
+    @Test
+    public void codeTracksLabelsAndReferences() {
+        var code = new PeepholeCode(code("A:", "iload_1", "ifne B", "goto A", "B:", "goto B", "return"));
+        assertEquals(0, code.indexOfLabel("A"));
+        assertEquals(4, code.indexOfLabel("B"));
+        assertEquals(1, code.countReferences("A"));
+        assertEquals(2, code.countReferences("B"));
+
+        code.subList(1, 3).clear();
+        code.add(0, JasminInstruction.parse("C:"));
+        code.set(2, JasminInstruction.parse("goto C"));
+        code.remove(4);
+
+        assertEquals("C:; A:; goto C; B:; return", code.stream()
+                .map(JasminInstruction::toString)
+                .collect(Collectors.joining("; ")));
+        assertEquals(0, code.indexOfLabel("C"));
+        assertEquals(1, code.indexOfLabel("A"));
+        assertEquals(3, code.indexOfLabel("B"));
+        assertEquals(1, code.countReferences("C"));
+        assertEquals(0, code.countReferences("A"));
+        assertEquals(0, code.countReferences("B"));
+    }
+
+    @Test
+    public void constantSelection() {
+        assertEquals("iconst_m1; bipush 6; sipush 32767; ldc 32768",
+                optimize("ldc -1", "sipush 6", "ldc 32767", "ldc 32768"));
+    }
+
+    @Test
+    public void iinc() {
+        assertEquals("iinc 2 -3", optimize("iload_2", "iconst_3", "isub", "istore_2"));
+    }
+
+    @Test
+    public void compareFusion() {
+        assertEquals("iload_1; iload_2; if_icmpge L; return; L:; return",
+                optimize("iload_1", "iload_2", "if_icmplt T", "iconst_0", "goto E", "T:", "iconst_1", "E:",
+                        "ifeq L", "return", "L:", "return"));
+    }
+
+    @Test
+    public void compareWithZero() {
+        assertEquals("iload_1; ifgt L; return; L:; return",
+                optimize("iload_1", "iconst_0", "if_icmpgt L", "return", "L:", "return"));
+    }
+
+    @Test
+    public void jumpThreadingAndRedundantGoto() {
+        assertEquals("iload_1; ifne C; return; C:; return",
+                optimize("iload_1", "ifne A", "return", "A:", "goto B", "B:", "goto C", "C:", "return"));
+    }
+
+    @Test
+    public void loopRotation() {
+        assertEquals("iload_1; iload_2; if_icmplt B; goto E; B:; iinc 1 1; iload_1; iload_2; if_icmplt B; E:; return",
+                optimize("H:", "iload_1", "iload_2", "if_icmplt B", "goto E", "B:", "iinc 1 1", "goto H", "E:",
+                        "return"));
+    }
+
+    @Test
+    public void variablesNamedLikeTemporariesAreKept() {
+        var code = """
+                import ioPlus;
+                class Names {
+                    public static void main(String[] args) {
+                        int tmp0;
+                        int iv_tmp1;
+                        tmp0 = 2 * args.length + 3;
+                        iv_tmp1 = tmp0 * 5;
+                        ioPlus.printResult(iv_tmp1);
+                    }
+                }
+                """;
+        var ollirResult = OptimizationTestUtils.optimize(code, Map.of());
+
+        // The generator skips the names of the program, and only its own variables are temporaries
+        var temporaries = GeneratedOllirResult.getTemporaries(ollirResult);
+        assertFalse(temporaries.toString(), temporaries.contains("tmp0"));
+        assertFalse(temporaries.toString(), temporaries.contains("iv_tmp1"));
+        assertTrue(temporaries.toString(), temporaries.contains("tmp1"));
+
+        CpUtils.runJasmin(TestUtils.backend(ollirResult), "Result: 15");
+    }
+}
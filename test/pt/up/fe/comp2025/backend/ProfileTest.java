@@ -0,0 +1,130 @@
+package pt.up.fe.comp2025.backend;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProfileTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/backend/Profile.jmm";
+
+    private static final String EXPECTED_OUTPUT = "Result: 208\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Compiles and runs the program instrumented, and returns the profile it wrote.
+     */
+    private File instrumentedRun() throws IOException {
+        var file = new File(folder.getRoot(), "Skewed.profile");
+        var config = Map.of(ConfigOptions.getProfile(), "instrument=" + file.getAbsolutePath());
+
+        var jasminCode = TestUtils.backend(OptimizationTestUtils.optimize(SpecsIo.getResource(RESOURCE), config))
+                .getJasminCode();
+        var output = new InProcessRunner().run(jasminCode, Collections.emptyList());
+        assertEquals(output.getStdErr(), EXPECTED_OUTPUT, output.getStdOut());
+
+        return file;
+    }
+
+    @Test
+    public void instrumentedProgramWritesCounts() throws IOException {
+        var profile = Profile.read(instrumentedRun());
+
+        assertEquals(1, profile.getCount("main", Profile.ENTRY));
+        assertEquals(1, profile.getCount("count", Profile.ENTRY));
+        assertEquals(101, profile.getCount("count", Profile.labelCounter("cond0")));
+        assertEquals(3, profile.getCount("count", Profile.labelCounter("then3")));
+        assertEquals(97, profile.getCount("count", Profile.labelCounter("else4")));
+    }
+
+    @Test
+    public void programThatThrowsWritesCounts() throws IOException {
+        var file = new File(folder.getRoot(), "Throws.profile");
+        var config = Map.of(ConfigOptions.getProfile(), "instrument=" + file.getAbsolutePath());
+        var code = """
+                class Throws {
+                    public static void main(String[] args) {
+                        int[] a;
+                        int i;
+                        a = new int[3];
+                        i = 0;
+                        while (i < 4) {
+                            a[i] = i;
+                            i = i + 1;
+                        }
+                    }
+                }
+                """;
+
+        var jasminCode = TestUtils.backend(OptimizationTestUtils.optimize(code, config)).getJasminCode();
+        var output = new InProcessRunner().run(jasminCode, Collections.emptyList());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArrayIndexOutOfBoundsException"));
+
+        var profile = Profile.read(file);
+        assertEquals(1, profile.getCount("main", Profile.ENTRY));
+        assertEquals(4, profile.getCount("main", Profile.labelCounter("body1")));
+    }
+
+    @Test
+    public void instructionCountsFollowBranches() throws IOException {
+        var profile = Profile.read(instrumentedRun());
+        var ollirResult = OptimizationTestUtils.optimize(SpecsIo.getResource(RESOURCE), Collections.emptyMap());
+        var method = CpUtils.getMethod(ollirResult, "count");
+        var counts = profile.getInstructionCounts(method);
+
+        // Every instruction runs once per call, per iteration, or per iteration of one of the branches
+        for (var count : counts) {
+            assertTrue(String.valueOf(count), count == 1 || count == 3 || count == 97 || count == 100 || count == 101);
+        }
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[counts.length - 1]);
+    }
+
+    @Test
+    public void mismatchedCodeIsIgnored() throws IOException {
+        var ollirResult = OptimizationTestUtils.optimize(SpecsIo.getResource(RESOURCE), Collections.emptyMap());
+        var method = CpUtils.getMethod(ollirResult, "count");
+        var text = SpecsIo.read(instrumentedRun());
+        assertNotNull(Profile.parse(text).getInstructionCounts(method));
+
+        // The same counts, for code with another fingerprint
+        var fingerprint = "count " + Profile.FINGERPRINT + " " + Profile.fingerprint(method);
+        assertTrue(text.contains(fingerprint));
+        var other = Profile.parse(text.replace(fingerprint, "count " + Profile.FINGERPRINT + " 0"));
+        assertTrue(other.contains("count"));
+        assertNull(other.getInstructionCounts(method));
+    }
+
+    @Test
+    public void profileDecidesLocals() throws IOException {
+        var profile = instrumentedRun();
+        var code = SpecsIo.getResource(RESOURCE);
+
+        // Statically, rare is used by more instructions of the loop, but common runs more often
+        var estimated = CpUtils.getMethod(
+                OptimizationTestUtils.optimize(code, Map.of(ConfigOptions.getRegister(), "0")), "count").getVarTable();
+        assertTrue(estimated.get("rare").getVirtualReg() < estimated.get("common").getVirtualReg());
+
+        var config = Map.of(ConfigOptions.getRegister(), "0", ConfigOptions.getProfile(),
+                "use=" + profile.getAbsolutePath());
+        var profiled = CpUtils.getMethod(OptimizationTestUtils.optimize(code, config), "count").getVarTable();
+        assertTrue(profiled.get("common").getVirtualReg() < profiled.get("rare").getVirtualReg());
+    }
+}
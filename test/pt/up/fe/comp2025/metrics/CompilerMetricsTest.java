@@ -0,0 +1,70 @@
+package pt.up.fe.comp2025.metrics;
+
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.backend.MeasuredJasminResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompilerMetricsTest {
+
+    private static final String CODE = SpecsIo.getResource("pt/up/fe/comp/cp2/optimizations/reg_alloc/regalloc.jmm");
+
+    @After
+    public void finish() {
+        CompilerMetrics.finish();
+    }
+
+    @Test
+    public void measuresEveryStage() {
+        var metrics = CompilerMetrics.start();
+        var result = TestUtils.backend(CODE, Map.of(ConfigOptions.getRegister(), "1"));
+
+        assertTrue(result instanceof MeasuredJasminResult);
+        assertSame(metrics, ((MeasuredJasminResult) result).getMetrics());
+
+        for (var stage : new String[]{"parse", "analysis/symbolTable", "analysis/UndeclaredVariable", "ollir",
+                "backend"}) {
+            assertEquals(stage, 1, metrics.getMeasurements(stage).size());
+        }
+
+        var parse = metrics.getMeasurements("parse").get(0);
+        assertTrue(parse.counts().get("nodes") > 0);
+        assertTrue(parse.wallNanos() > 0);
+
+        // One measurement per method
+        var allocations = metrics.getMeasurements("optimization/registerAllocation");
+        assertTrue(allocations.stream().anyMatch(measurement -> "soManyRegisters".equals(measurement.method())));
+
+        var peephole = metrics.getMeasurements("backend/peephole").stream()
+                .filter(measurement -> "soManyRegisters".equals(measurement.method()))
+                .findFirst()
+                .orElseThrow();
+        assertTrue(peephole.counts().get("instructionsAfter") <= peephole.counts().get("instructionsBefore"));
+    }
+
+    @Test
+    public void jsonHasAllMeasurements() {
+        var metrics = CompilerMetrics.start();
+        TestUtils.backend(CODE);
+
+        var json = JsonParser.parseString(metrics.toJson()).getAsJsonObject();
+        var measurements = json.getAsJsonArray("measurements");
+        assertEquals(metrics.getMeasurements().size(), measurements.size());
+        assertTrue(measurements.get(0).getAsJsonObject().has("allocatedBytes"));
+    }
+
+    @Test
+    public void disabledByDefault() {
+        var result = TestUtils.backend(CODE);
+
+        assertFalse(result instanceof MeasuredJasminResult);
+        assertTrue(CompilerMetrics.current().isEmpty());
+    }
+}
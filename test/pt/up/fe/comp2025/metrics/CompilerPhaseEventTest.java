@@ -0,0 +1,47 @@
+package pt.up.fe.comp2025.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+public class CompilerPhaseEventTest {
+
+    @Test
+    public void phasesAreRecorded() throws IOException {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/optimizations/const_prop_fold/PropSimple.jmm");
+        var config = Map.of(ConfigOptions.getOptimize(), "true", ConfigOptions.getRegister(), "1");
+
+        var file = Files.createTempFile("compiler", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable(CompilerPhaseEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            TestUtils.backend(TestUtils.optimize(code, config, false));
+            recording.stop();
+            recording.dump(file);
+
+            var events = RecordingFile.readAllEvents(file);
+            var phases = events.stream().map(event -> event.getString("phase")).toList();
+
+            for (var phase : new String[]{"parse", "analysis/UndeclaredVariable", "optimization/astOptimizer",
+                    "optimization/registerAllocation", "backend/method"}) {
+                assertTrue(phase + " in " + phases, phases.contains(phase));
+            }
+
+            assertTrue(events.stream().anyMatch(event -> "backend/method".equals(event.getString("phase"))
+                    && "foo".equals(event.getString("method"))
+                    && event.getString("counts").contains("ollirInstructions=")));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BranchConditionsTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/optimization/BranchConditions.jmm";
+
+    @Test
+    public void conditionsDoNotMaterializeBooleans() {
+        var ollirResult = TestUtils.optimize(SpecsIo.getResource(RESOURCE));
+        var ollirCode = ollirResult.getOllirCode();
+
+        // Only the assignment 't = !(a < b)' needs a boolean value, the conditions of if and while branch directly
+        var materialized = Pattern.compile(":=\\.bool \\S+ (<|>|<=|>=|==|!=)\\.bool").matcher(ollirCode).results().count();
+        assertEquals(ollirCode, 1, materialized);
+        assertFalse(ollirCode, ollirCode.contains("andTmp"));
+        assertFalse(ollirCode, ollirCode.contains("orTmp"));
+    }
+
+    @Test
+    public void conditionsExecute() {
+        var ollirResult = TestUtils.optimize(SpecsIo.getResource(RESOURCE));
+        CpUtils.runJasmin(TestUtils.backend(ollirResult), "Result: 1014\nResult: 11");
+    }
+}
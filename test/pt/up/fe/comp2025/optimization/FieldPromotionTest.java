@@ -0,0 +1,66 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.assertExecutes;
+import static pt.up.fe.comp.OptimizationTestUtils.assertExecutesInNewJvm;
+import static pt.up.fe.comp.OptimizationTestUtils.getMethodCode;
+
+public class FieldPromotionTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/optimization/FieldPromotion.jmm";
+
+    private static final String EXPECTED_OUTPUT = "Result: 3\nResult: 20\nResult: 26\nResult: 10\nResult: 54\nResult: 22";
+
+    private static OllirResult generate(boolean promoteFields) {
+        var config = Map.of(ConfigOptions.getOptimize(), String.valueOf(promoteFields), ConfigOptions.getUnroll(), "1");
+        return OptimizationTestUtils.generate(SpecsIo.getResource(RESOURCE), config);
+    }
+
+    private static int count(String code, String text) {
+        return code.split(Pattern.quote(text), -1).length - 1;
+    }
+
+    @Test
+    public void loopFieldsAreLoadedOnce() {
+        var sum = getMethodCode(generate(true), "sum");
+        assertEquals(sum, 1, count(sum, "getfield(this, total.i32)"));
+        assertEquals(sum, 1, count(sum, "getfield(this, step.i32)"));
+
+        // total is only written back before the return
+        assertEquals(sum, 1, count(sum, "putfield(this, total.i32"));
+    }
+
+    @Test
+    public void fieldsAreWrittenBackAroundCalls() {
+        var mixed = getMethodCode(generate(true), "mixed");
+        int call = mixed.indexOf("invokevirtual(this.FieldPromotion, \"bump\")");
+
+        // bump reads and writes step, so it is stored before the call and loaded again after it
+        assertTrue(mixed, mixed.lastIndexOf("putfield(this, step.i32", call) > mixed.indexOf("body"));
+        assertTrue(mixed, mixed.indexOf("getfield(this, step.i32", call) > call);
+    }
+
+    @Test
+    public void fieldsAccessedOnceAreNotPromoted() {
+        var init = getMethodCode(generate(true), "init");
+        assertTrue(init, !init.contains("field_"));
+    }
+
+    @Test
+    public void promotedCodeExecutes() {
+        assertExecutes(EXPECTED_OUTPUT, generate(false), generate(true));
+
+        // The class file must also pass the verifier of a separate JVM, with the limits the backend computed
+        assertExecutesInNewJvm(EXPECTED_OUTPUT, generate(true));
+    }
+}
@@ -0,0 +1,68 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.assertExecutes;
+import static pt.up.fe.comp.OptimizationTestUtils.getMethodCode;
+
+public class LoopUnrollerTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/optimization/LoopUnrolling.jmm";
+
+    private static final String EXPECTED_OUTPUT = "Result: 0\nResult: 0\nResult: 21\nResult: 45\nResult: 30\n"
+            + "Result: 0\nResult: 48\nResult: 109\nResult: 4947\nResult: 197";
+
+    private static OllirResult generate(int factor) {
+        var config = Map.of(ConfigOptions.getOptimize(), "true", ConfigOptions.getUnroll(), String.valueOf(factor));
+        return OptimizationTestUtils.generate(SpecsIo.getResource(RESOURCE), config);
+    }
+
+    @Test
+    public void constantTripCountIsFullyUnrolled() {
+        var squares = getMethodCode(generate(4), "squares");
+        assertFalse(squares, squares.contains("goto"));
+        assertEquals(squares, 5, squares.split("\\*\\.i32", -1).length - 1);
+    }
+
+    @Test
+    public void unrolledLoopIsFollowedByRemainder() {
+        var sum = getMethodCode(generate(4), "sum");
+
+        // The unrolled loop stops 3 increments before n, the original loop runs the rest
+        assertTrue(sum, sum.contains(":=.i32 n.i32 -.i32 3.i32;"));
+        assertTrue(sum, sum.indexOf("cond0_unrolled:") < sum.indexOf("cond0:"));
+        assertEquals(sum, 5, sum.split("s\\.i32 \\+\\.i32 i\\.i32", -1).length - 1);
+
+        var stepped = getMethodCode(generate(4), "stepped");
+        assertTrue(stepped, stepped.contains(":=.i32 n.i32 -.i32 9.i32;"));
+    }
+
+    @Test
+    public void factorOneDisablesUnrolling() {
+        var ollirCode = generate(1).getOllirCode();
+        assertFalse(ollirCode, ollirCode.contains("_unrolled"));
+    }
+
+    @Test
+    public void unrolledCodeExecutes() {
+        for (int factor : new int[]{1, 2, 3, 4, 8}) {
+            assertExecutes(EXPECTED_OUTPUT, generate(factor));
+        }
+    }
+
+    @Test
+    public void unrollFactor() {
+        assertEquals(CompilerConfig.DEFAULT_UNROLL_FACTOR, CompilerConfig.getUnrollFactor(Map.of()));
+        assertEquals(8, CompilerConfig.getUnrollFactor(Map.of(ConfigOptions.getUnroll(), "8")));
+    }
+}
@@ -0,0 +1,90 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.backend.InProcessRunner;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.metrics.Measurement;
+import pt.up.fe.comp2025.synthetic.ProgramGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelMethodsTest {
+
+    private static final String CODE = new ProgramGenerator(2025, ProgramGenerator.Options.scaled(8))
+            .generate("Synthetic");
+
+    private static Map<String, String> config(int threads) {
+        return Map.of(ConfigOptions.getThreads(), Integer.toString(threads), ConfigOptions.getRegister(), "0");
+    }
+
+    @Test
+    public void sameCodeAsSequential() {
+        var sequential = TestUtils.optimize(CODE, config(1));
+        var parallel = TestUtils.optimize(CODE, config(4));
+        assertEquals(sequential.getOllirCode(), parallel.getOllirCode());
+
+        var sequentialJasmin = TestUtils.backend(sequential).getJasminCode();
+        var parallelJasmin = TestUtils.backend(parallel).getJasminCode();
+        assertEquals(sequentialJasmin, parallelJasmin);
+
+        assertEquals(new InProcessRunner().run(sequentialJasmin, List.of()).getOutput(),
+                new InProcessRunner().run(parallelJasmin, List.of()).getOutput());
+    }
+
+    @Test
+    public void allocationReportsInMethodOrder() {
+        var sequential = allocationReports(1);
+        var parallel = allocationReports(4);
+
+        // The constructor is allocated too
+        assertEquals((ProgramGenerator.Options.scaled(8).methods() + 2), sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    private static List<String> allocationReports(int threads) {
+        // TestUtils replaces System.out when creating each stage, so the optimization is created here
+        var semantics = TestUtils.analyse(CODE, config(threads));
+        var optimization = new JmmOptimizationImpl();
+
+        var bytes = new ByteArrayOutputStream();
+        var previous = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            optimization.toOllir(optimization.optimize(semantics));
+        } finally {
+            System.setOut(previous);
+        }
+
+        return bytes.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> line.startsWith("Method ") && line.contains("JVM local(s)"))
+                .toList();
+    }
+
+    @Test
+    public void workerThreadsAreMeasured() {
+        var metrics = CompilerMetrics.start();
+        try {
+            TestUtils.backend(TestUtils.optimize(CODE, config(4)));
+        } finally {
+            CompilerMetrics.finish();
+        }
+
+        var methods = ProgramGenerator.Options.scaled(8).methods() + 1;
+        assertEquals(methods, metrics.getMeasurements("ollir/method").size());
+        // Register allocation also runs for the constructor
+        var allocated = metrics.getMeasurements("optimization/registerAllocation").stream()
+                .map(Measurement::method)
+                .distinct()
+                .count();
+        assertEquals(methods + 1, allocated);
+        assertEquals(methods, metrics.getMeasurements("backend/method").size());
+    }
+}
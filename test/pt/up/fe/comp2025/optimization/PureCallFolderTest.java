@@ -0,0 +1,77 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.assertExecutes;
+import static pt.up.fe.comp.OptimizationTestUtils.getMethodCode;
+
+public class PureCallFolderTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/optimization/PureCalls.jmm";
+
+    private static final String EXPECTED_OUTPUT = "Result: 2\nResult: 83\nResult: 0\nResult: 1000\nResult: 100\nResult: 100\nResult: 610";
+
+    private static OllirResult generate(boolean optimize) {
+        var config = Map.of(ConfigOptions.getOptimize(), String.valueOf(optimize));
+        return OptimizationTestUtils.optimize(SpecsIo.getResource(RESOURCE), config);
+    }
+
+    @Test
+    public void pureCallsAreFolded() {
+        var run = getMethodCode(generate(true), "run");
+        assertFalse(run, run.contains("\"fib\""));
+        assertFalse(run, run.contains("\"square\""));
+        assertFalse(run, run.contains("\"isEven\""));
+        assertTrue(run, run.contains("64.i32"));
+
+        var main = getMethodCode(generate(true), "main");
+        assertFalse(main, main.contains("\"fib\""));
+        assertTrue(main, main.contains("610.i32"));
+    }
+
+    @Test
+    public void callsWithSideEffectsAreKept() {
+        var run = getMethodCode(generate(true), "run");
+
+        // Writes a field, reads a field, calls ioPlus through show, writes an array
+        assertTrue(run, run.contains("\"bump\""));
+        assertTrue(run, run.contains("\"getTotal\""));
+        assertTrue(run, run.contains("\"twice\""));
+        assertTrue(run, run.contains("\"store\""));
+    }
+
+    @Test
+    public void callsBeyondTheLimitsAreKept() {
+        var ollirResult = generate(true);
+
+        var main = getMethodCode(ollirResult, "main");
+        assertTrue(main, main.contains("\"spin\""));
+        assertTrue(main, main.contains("\"deep\""));
+
+        var never = getMethodCode(ollirResult, "never");
+        assertTrue(never, never.contains("\"half\""));
+    }
+
+    @Test
+    public void limitsOfOneCallDoNotKeepOthers() {
+        var main = getMethodCode(generate(true), "main");
+
+        // deep(100) nests too many calls inside deeper(200), but not when it is called by itself
+        assertEquals(main, 1, main.split("\"deep\"", -1).length - 1);
+    }
+
+    @Test
+    public void foldedCodeExecutes() {
+        // Calls to static methods of the class are not generated, so the program only runs once they are folded
+        assertExecutes(EXPECTED_OUTPUT, generate(true));
+    }
+}
@@ -0,0 +1,99 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.synthetic.ProgramGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.assertExecutes;
+
+public class RegisterAllocatorTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/optimization/RegisterAllocation.jmm";
+
+    private static final String EXPECTED_OUTPUT = "Result: 60\nResult: 21";
+
+    private static OllirResult allocate() {
+        return allocate(SpecsIo.getResource(RESOURCE), "graph");
+    }
+
+    private static OllirResult allocate(String code, String allocator) {
+        var config = Map.of(ConfigOptions.getRegister(), "0", ConfigOptions.getRegisterAllocator(), allocator);
+        return OptimizationTestUtils.optimize(code, config);
+    }
+
+    @Test
+    public void parametersKeepTheirLocals() {
+        var varTable = CpUtils.getMethod(allocate(), "f").getVarTable();
+        assertEquals(0, varTable.get("this").getVirtualReg());
+        assertEquals(1, varTable.get("n").getVirtualReg());
+    }
+
+    @Test
+    public void deadParametersLocalsAreReused() {
+        var ollirResult = allocate();
+        var varTable = CpUtils.getMethod(ollirResult, "g").getVarTable();
+        assertEquals(1, varTable.get("a").getVirtualReg());
+        assertEquals(2, varTable.get("b").getVirtualReg());
+
+        // a and b are dead once x is computed, so x and y fit in their locals
+        assertTrue(varTable.get("x").getVirtualReg() <= 2);
+        assertTrue(varTable.get("y").getVirtualReg() <= 2);
+
+        var jasminCode = TestUtils.backend(ollirResult).getJasminCode();
+        var g = jasminCode.substring(jasminCode.indexOf(".method public g("));
+        assertTrue(g, g.contains(".limit locals 3"));
+    }
+
+    @Test
+    public void loopVariablesGetLowestLocals() {
+        var varTable = CpUtils.getMethod(allocate(), "f").getVarTable();
+
+        // The counter is the most used variable of the loop, x is live during the loop but only used outside of it
+        assertEquals(2, varTable.get("i").getVirtualReg());
+        assertTrue(varTable.get("x").getVirtualReg() > varTable.get("s").getVirtualReg());
+    }
+
+    @Test
+    public void allocatedCodeExecutes() {
+        assertExecutes(EXPECTED_OUTPUT, allocate());
+    }
+
+    @Test
+    public void linearScanExecutes() {
+        var ollirResult = allocate(SpecsIo.getResource(RESOURCE), "linear");
+        assertEquals(2, CpUtils.getMethod(ollirResult, "f").getVarTable().get("i").getVirtualReg());
+        assertExecutes(EXPECTED_OUTPUT, ollirResult);
+    }
+
+    @Test
+    public void linearScanUsesNoMoreLocals() {
+        var code = new ProgramGenerator(2025, ProgramGenerator.Options.scaled(4)).generate("Synthetic");
+        var graph = allocate(code, "graph");
+        var linear = allocate(code, "linear");
+
+        for (var method : graph.getOllirClass().getMethods()) {
+            var name = method.getMethodName();
+            assertTrue(name, CpUtils.countRegisters(CpUtils.getMethod(linear, name))
+                    <= CpUtils.countRegisters(CpUtils.getMethod(graph, name)));
+        }
+    }
+
+    @Test
+    public void linearScanThreshold() {
+        assertEquals(Integer.MAX_VALUE, CompilerConfig.getLinearScanThreshold(Map.of()));
+        assertEquals(0, CompilerConfig.getLinearScanThreshold(Map.of(ConfigOptions.getRegisterAllocator(), "linear")));
+        assertEquals(CompilerConfig.DEFAULT_LINEAR_SCAN_THRESHOLD,
+                CompilerConfig.getLinearScanThreshold(Map.of(ConfigOptions.getRegisterAllocator(), "auto")));
+        assertEquals(50, CompilerConfig.getLinearScanThreshold(Map.of(ConfigOptions.getRegisterAllocator(), "50")));
+    }
+}
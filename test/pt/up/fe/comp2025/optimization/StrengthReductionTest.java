@@ -0,0 +1,66 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.OptimizationTestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.assertExecutes;
+import static pt.up.fe.comp.OptimizationTestUtils.getLoopBody;
+import static pt.up.fe.comp.OptimizationTestUtils.getMethodCode;
+
+public class StrengthReductionTest {
+
+    private static final String RESOURCE = "pt/up/fe/comp2025/optimization/StrengthReduction.jmm";
+
+    private static final String EXPECTED_OUTPUT = "Result: 21\nResult: 1340\nResult: 0\nResult: 3675\nResult: 186\n"
+            + "Result: 1";
+
+    private static OllirResult generate(boolean optimize, int unrollFactor) {
+        var config = Map.of(ConfigOptions.getOptimize(), String.valueOf(optimize),
+                ConfigOptions.getUnroll(), String.valueOf(unrollFactor));
+        return OptimizationTestUtils.generate(SpecsIo.getResource(RESOURCE), config);
+    }
+
+    @Test
+    public void derivedVariablesAreUpdatedByAdditions() {
+        var oddSum = getLoopBody(generate(true, 1), "oddSum");
+        assertFalse(oddSum, oddSum.contains("*.i32"));
+        assertTrue(oddSum, oddSum.contains("iv_tmp0.i32 :=.i32 iv_tmp0.i32 +.i32 2.i32;"));
+
+        // With a variable factor and an increment of 2, the step is computed before the loop
+        var scaled = getLoopBody(generate(true, 1), "scaled");
+        assertFalse(scaled, scaled.contains("*.i32"));
+        assertTrue(scaled, scaled.contains("+.i32 iv_tmp0_step.i32;"));
+    }
+
+    @Test
+    public void counterOnlyUsedByExitTestIsRemoved() {
+        var multiples = getMethodCode(generate(true, 1), "multiples");
+
+        assertFalse(multiples, multiples.contains("i.i32"));
+        assertTrue(multiples, multiples.contains("if (iv_tmp0.i32 <.bool 150.i32)"));
+    }
+
+    @Test
+    public void counterUsedAfterTheLoopIsKept() {
+        var scaled = getLoopBody(generate(true, 1), "scaled");
+        assertTrue(scaled, scaled.contains("i.i32 :=.i32"));
+    }
+
+    @Test
+    public void productsOfTheCounterWithItselfAreKept() {
+        var fill = getLoopBody(generate(true, 1), "fill");
+        assertTrue(fill, fill.contains("i.i32 *.i32 i.i32"));
+    }
+
+    @Test
+    public void reducedCodeExecutes() {
+        assertExecutes(EXPECTED_OUTPUT, generate(false, 1), generate(true, 1), generate(true, 4));
+    }
+}
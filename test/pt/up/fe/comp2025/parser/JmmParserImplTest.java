@@ -0,0 +1,70 @@
+package pt.up.fe.comp2025.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class JmmParserImplTest {
+
+    private static String describe(JmmParserResult result) {
+        var reports = result.getReports().stream()
+                .map(report -> report.getStage() + "@" + report.getLine() + ":" + report.getColumn() + " " + report.getMessage())
+                .collect(Collectors.joining("\n"));
+        var tree = result.getRootNode() == null ? "<no root>" : result.getRootNode().toTree();
+        return reports + "\n" + tree;
+    }
+
+    private static void assertSameAsLL(String code) {
+        var parser = new JmmParserImpl();
+        var twoStage = parser.parse(code, Collections.emptyMap());
+        var ll = parser.parse(code, parser.getDefaultRule(), Collections.emptyMap(), false);
+
+        assertEquals(code, describe(ll), describe(twoStage));
+    }
+
+    @Test
+    public void sameResultAsLLForTestInputs() {
+        var files = SpecsIo.getFilesRecursive(new File("test"), "jmm");
+        assertFalse(files.isEmpty());
+
+        for (var file : files) {
+            assertSameAsLL(SpecsIo.read(file));
+        }
+    }
+
+    @Test
+    public void mappedFileSameResultAsString() {
+        var parser = new JmmParserImpl();
+
+        for (var file : SpecsIo.getFilesRecursive(new File("test"), "jmm")) {
+            var fromString = parser.parse(SpecsIo.read(file), Collections.emptyMap());
+            var fromFile = parser.parse(file, Collections.emptyMap());
+
+            assertEquals(file.getPath(), describe(fromString), describe(fromFile));
+        }
+    }
+
+    @Test
+    public void sameReportsAsLLForSyntaxErrors() {
+        List<String> inputs = new ArrayList<>();
+        inputs.add("class A { public int f() { return 1 + ; } }");
+        inputs.add("class A { public int f() { int a; a = (1 + 2; return a; } }");
+        inputs.add("import a.b class A { }");
+        inputs.add("class A { public int f() { while (true) return 1; } } }");
+        inputs.add("class A { public int f() { a[1 = 2; return 0; } }");
+        inputs.add("class A { # }");
+
+        for (var input : inputs) {
+            assertSameAsLL(input);
+        }
+    }
+}
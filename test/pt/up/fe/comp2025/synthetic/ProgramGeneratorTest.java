@@ -0,0 +1,47 @@
+package pt.up.fe.comp2025.synthetic;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.backend.InProcessRunner;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ProgramGeneratorTest {
+
+    private static String generate(long seed, ProgramGenerator.Options options) {
+        return new ProgramGenerator(seed, options).generate("Synthetic");
+    }
+
+    @Test
+    public void sameSeedSameProgram() {
+        var options = ProgramGenerator.Options.getDefault();
+        assertEquals(generate(42, options), generate(42, options));
+        assertNotEquals(generate(42, options), generate(43, options));
+    }
+
+    @Test
+    public void scaledProgramsGrowLinearly() {
+        var small = generate(7, ProgramGenerator.Options.scaled(1)).lines().count();
+        var large = generate(7, ProgramGenerator.Options.scaled(8)).lines().count();
+        assertEquals(8.0, (double) large / small, 2.0);
+    }
+
+    @Test
+    public void generatedProgramsCompileAndRun() {
+        var codes = new ArrayList<String>();
+        var jasminCodes = new ArrayList<String>();
+        for (long seed = 0; seed < 5; seed++) {
+            var code = generate(seed, ProgramGenerator.Options.getDefault());
+            codes.add(code);
+            jasminCodes.add(TestUtils.backend(code).getJasminCode());
+        }
+
+        var outputs = new InProcessRunner().runAll(jasminCodes);
+        for (int i = 0; i < outputs.size(); i++) {
+            assertEquals(codes.get(i) + "\n" + outputs.get(i).getStdErr(), 0, (int) outputs.get(i).getReturnValue());
+        }
+    }
+}